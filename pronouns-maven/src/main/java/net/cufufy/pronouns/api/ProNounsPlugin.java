@@ -7,10 +7,17 @@ import java.util.concurrent.ScheduledExecutorService;
  */
 public interface ProNounsPlugin {
     /**
-     * Gets a pronoun parser that is aware of the predefined sets from {@link #store()}.
+     * Gets a pronoun parser that is aware of the predefined sets from {@link #store()} and the server's catalog.
+     * The parser may be replaced when the plugin is reloaded, so avoid holding on to it.
      */
     PronounParser parser();
 
+    /**
+     * Gets the codec stores use to encode pronouns compactly, which knows this server's catalog sets.
+     * Like {@link #parser()}, it may be replaced when the plugin is reloaded.
+     */
+    PronounCodec codec();
+
     /**
      * Gets the pronoun store.
      */
@@ -0,0 +1,232 @@
+package net.cufufy.pronouns.api;
+
+import net.cufufy.pronouns.api.set.PronounList;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.set.PronounSetInterner;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes lists of pronoun sets into a compact binary form.
+ * <p>
+ * Builtin sets, and any sets given to the codec with an ID, are written as a single small integer.
+ * Other sets are written inline as their five length-prefixed forms. Decoding an encoded list gives the same sets
+ * as parsing its {@link #toText(List) text form} would.
+ * <p>
+ * The format is a version byte, a varint count of sets, then each set as a varint tag:
+ * 0 for an inline set, which is followed by a flags byte and the five forms as varint lengths of UTF-8,
+ * or otherwise the set's ID plus one.
+ */
+public final class PronounCodec {
+    private static final int VERSION = 1;
+
+    /**
+     * Prefixes {@link #encodeToString(List) string-encoded} data to tell it apart from text.
+     */
+    public static final String STRING_PREFIX = "~1";
+
+    /**
+     * The first ID available to non-builtin sets. Lower IDs are reserved for builtins.
+     */
+    public static final int FIRST_CUSTOM_ID = 16;
+
+    private static final List<PronounSet> BUILTIN_IDS = List.of(
+            PronounSet.Builtins.UNSET,
+            PronounSet.Builtins.THEY,
+            PronounSet.Builtins.HE,
+            PronounSet.Builtins.SHE,
+            PronounSet.Builtins.IT,
+            PronounSet.Builtins.ANY,
+            PronounSet.Builtins.ASK
+    );
+
+    /**
+     * A codec that only knows the builtin sets.
+     */
+    public static final PronounCodec BUILTINS = new PronounCodec(Map.of());
+
+    private final Map<Integer, PronounList> byId = new HashMap<>();
+    private final Map<PronounSet, Integer> ids = new HashMap<>();
+
+    /**
+     * Creates a codec that knows the builtin sets plus the given ones.
+     * IDs must stay the same for as long as any data encoded with them is kept.
+     *
+     * @param customIds a map of IDs, each at least {@link #FIRST_CUSTOM_ID}, to the sets they represent
+     */
+    public PronounCodec(Map<Integer, PronounSet> customIds) {
+        for (int id = 0; id < BUILTIN_IDS.size(); id++) {
+            register(id, BUILTIN_IDS.get(id));
+        }
+        customIds.forEach((id, set) -> {
+            if (id < FIRST_CUSTOM_ID) throw new IllegalArgumentException("ID " + id + " is reserved for builtin sets");
+            register(id, set);
+        });
+    }
+
+    private void register(int id, PronounSet set) {
+        byId.put(id, PronounList.of(set));
+        ids.putIfAbsent(set, id);
+    }
+
+    /**
+     * Gets the ID of a set, or -1 if it has none and would be written inline.
+     */
+    public int id(@NotNull PronounSet set) {
+        final Integer id = ids.get(set);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the set with an ID, or null if the ID is unknown.
+     */
+    public @Nullable PronounSet set(int id) {
+        final var set = byId.get(id);
+        return set == null ? null : set.get(0);
+    }
+
+    /**
+     * Gets the text form of a list of sets, as understood by {@link PronounParser#parse(String)}.
+     */
+    public static String toText(List<PronounSet> sets) {
+        if (sets instanceof PronounList list) return list.toFullString();
+        return sets.stream().map(PronounSet::toFullString).collect(Collectors.joining(";"));
+    }
+
+    /**
+     * Whether a stored string was produced by {@link #encodeToString(List)}, rather than being text.
+     */
+    public static boolean isEncoded(String stored) {
+        return stored.startsWith(STRING_PREFIX);
+    }
+
+    public byte[] encode(@NotNull List<PronounSet> sets) {
+        final var out = new ByteArrayOutputStream(2 + sets.size());
+        out.write(VERSION);
+        writeVarInt(out, sets.size());
+        for (final PronounSet set : sets) {
+            final Integer id = ids.get(set);
+            if (id != null) {
+                writeVarInt(out, id + 1);
+                continue;
+            }
+            writeVarInt(out, 0);
+            out.write(set.plural() ? 1 : 0);
+            writeString(out, set.subjective());
+            writeString(out, set.objective());
+            writeString(out, set.possessiveAdj());
+            writeString(out, set.possessive());
+            writeString(out, set.reflexive());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a list of sets. Inline sets are interned, and a single known set is returned as a shared list.
+     *
+     * @throws IllegalArgumentException if the data is malformed or refers to an unknown ID
+     */
+    public @NotNull List<PronounSet> decode(@NotNull byte[] bytes) {
+        final var in = new Reader(bytes);
+        if (in.readByte() != VERSION) throw new IllegalArgumentException("Unknown pronoun data version " + bytes[0]);
+        final int count = in.readVarInt();
+        if (count == 0) return PronounList.of();
+        // Every set takes at least a byte, so a larger count can only be corrupt data
+        if (count < 0 || count > in.remaining()) throw new IllegalArgumentException("Truncated pronoun data");
+        if (count == 1) {
+            final int tag = in.readVarInt();
+            return tag == 0 ? PronounList.of(readInline(in)) : known(tag - 1);
+        }
+        final var out = new LinkedHashSet<PronounSet>(Math.min(count, 16) * 2);
+        for (int i = 0; i < count; i++) {
+            final int tag = in.readVarInt();
+            out.add(tag == 0 ? readInline(in) : known(tag - 1).get(0));
+        }
+        return PronounList.of(out);
+    }
+
+    public String encodeToString(@NotNull List<PronounSet> sets) {
+        return STRING_PREFIX + Base64.getEncoder().withoutPadding().encodeToString(encode(sets));
+    }
+
+    /**
+     * Decodes a string produced by {@link #encodeToString(List)}.
+     *
+     * @throws IllegalArgumentException if the string is not encoded or is malformed
+     */
+    public @NotNull List<PronounSet> decodeString(@NotNull String stored) {
+        if (!isEncoded(stored)) throw new IllegalArgumentException("Not encoded pronoun data: " + stored);
+        return decode(Base64.getDecoder().decode(stored.substring(STRING_PREFIX.length())));
+    }
+
+    private PronounList known(int id) {
+        final var set = byId.get(id);
+        if (set == null) throw new IllegalArgumentException("Unknown pronoun set ID " + id);
+        return set;
+    }
+
+    private static PronounSet readInline(Reader in) {
+        final boolean plural = (in.readByte() & 1) != 0;
+        return PronounSetInterner.shared().intern(PronounSet.from(
+                in.readString(), in.readString(), in.readString(), in.readString(), in.readString(), plural));
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() {
+            if (position >= bytes.length) throw new IllegalArgumentException("Truncated pronoun data");
+            return bytes[position++] & 0xFF;
+        }
+
+        int remaining() {
+            return bytes.length - position;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed pronoun data");
+        }
+
+        String readString() {
+            final int length = readVarInt();
+            if (length < 0 || length > bytes.length - position) throw new IllegalArgumentException("Truncated pronoun data");
+            final var value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
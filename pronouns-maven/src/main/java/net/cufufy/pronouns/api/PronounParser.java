@@ -1,12 +1,17 @@
 package net.cufufy.pronouns.api;
 
+import net.cufufy.pronouns.api.set.PronounList;
 import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.set.PronounSetInterner;
 import net.cufufy.pronouns.api.set.SpecialPronounSet;
+import net.cufufy.pronouns.api.supplier.FixedSupplier;
 import net.cufufy.pronouns.api.supplier.PronounSupplier;
+import net.cufufy.pronouns.api.util.CaseInsensitiveIndex;
+import net.cufufy.pronouns.api.util.LruCache;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
@@ -22,6 +27,38 @@ import java.util.Set;
 public class PronounParser {
     // private static final Logger LOGGER = Logger.getLogger(PronounParser.class.getName());
 	private final Map<String, PronounSet> predefinedLookup;
+	private final CaseInsensitiveIndex<Match> index;
+	private final CaseInsensitiveIndex<Match> subjectiveIndex;
+	private final CaseInsensitiveIndex<Match> displayIndex;
+	private final @Nullable LruCache<String, List<PronounSet>> cache;
+	private final PronounSupplier predefined;
+
+    /**
+     * A reasonable number of distinct inputs to cache. Most players share one of a few dozen pronoun strings.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 256;
+
+    private static final Map<String, PronounSet> CANONICAL_BY_NAME = Map.of(
+            "ask", PronounSet.Builtins.ASK,
+            "any", PronounSet.Builtins.ANY,
+            "unset", PronounSet.Builtins.UNSET
+    );
+
+    private static final Map<String, PronounSet> CANONICAL_BY_FORMS = Map.of(
+            canonicalKey(PronounSet.Builtins.HE), PronounSet.Builtins.HE,
+            canonicalKey(PronounSet.Builtins.SHE), PronounSet.Builtins.SHE,
+            canonicalKey(PronounSet.Builtins.THEY), PronounSet.Builtins.THEY,
+            canonicalKey(PronounSet.Builtins.IT), PronounSet.Builtins.IT
+    );
+
+    /**
+     * A predefined set as stored in the lookup, along with its canonical form and a shared single-element result.
+     */
+    private record Match(PronounSet set, PronounSet canonical, List<PronounSet> singleton) {
+        Match(PronounSet set, PronounSet canonical) {
+            this(set, canonical, PronounList.of(canonical));
+        }
+    }
 
     // Using a single helper method now as per the refined plan
     private void addToMap(String key, PronounSet set) {
@@ -37,8 +74,29 @@ public class PronounParser {
     }
 
 	public PronounParser(final PronounSupplier predefinedSupplier) {
+        this(predefinedSupplier, 0);
+	}
+
+    /**
+     * Creates a parser that caches the results of {@link #parse(String)}.
+     *
+     * @param cacheCapacity the maximum number of distinct inputs to cache, or 0 to disable caching
+     */
+	public PronounParser(final PronounSupplier predefinedSupplier, final int cacheCapacity) {
+        this(predefinedSupplier, cacheCapacity, Map.of());
+	}
+
+    /**
+     * Creates a parser that also accepts extra names for predefined sets, such as the names of a server's catalog entries.
+     * Names never replace any of a set's own forms.
+     *
+     * @param names extra names, mapped to the sets they stand for
+     */
+	public PronounParser(final PronounSupplier predefinedSupplier, final int cacheCapacity, final Map<String, PronounSet> names) {
+        this.cache = cacheCapacity > 0 ? new LruCache<>(cacheCapacity) : null;
         this.predefinedLookup = new HashMap<>();
         Set<PronounSet> allPredefinedSets = predefinedSupplier.get();
+        this.predefined = new FixedSupplier(Set.copyOf(allPredefinedSets));
 
         // Phase 1: Explicitly map canonical Builtins for their primary string representations.
         // This uses addToMap (which does .put()) to ensure these specific keys point to the static Builtins objects.
@@ -83,133 +141,208 @@ public class PronounParser {
                 addToMapIfAbsent(predef.reflexive(), predef);
             }
         }
+
+        names.forEach(this::addToMapIfAbsent);
+
+        // Canonicalize once up front so that parsing a predefined set is a single table lookup
+        final Map<PronounSet, Match> matchesBySet = new HashMap<>();
+        final Map<String, Match> matchesByKey = new HashMap<>();
+        this.predefinedLookup.forEach((key, set) ->
+                matchesByKey.put(key, matchesBySet.computeIfAbsent(set, s -> new Match(s, canonicalize(s)))));
+        this.index = new CaseInsensitiveIndex<>(matchesByKey);
+
+        // Secondary indexes for shorthand components that aren't keys themselves.
+        // Regular sets take priority over special sets proxying the same subjective pronoun.
+        final Map<String, Match> bySubjective = new HashMap<>();
+        final Map<String, Match> byDisplay = new HashMap<>();
+        for (final Match match : matchesBySet.values()) {
+            if (!(match.set() instanceof SpecialPronounSet)) putIndexKey(bySubjective, match.set().subjective(), match);
+            putIndexKey(byDisplay, match.set().toString(), match);
+        }
+        for (final Match match : matchesBySet.values()) {
+            putIndexKey(bySubjective, match.set().subjective(), match);
+        }
+        this.subjectiveIndex = new CaseInsensitiveIndex<>(bySubjective);
+        this.displayIndex = new CaseInsensitiveIndex<>(byDisplay);
 	}
 
+    private static void putIndexKey(Map<String, Match> map, String key, Match match) {
+        if (key != null && !key.isBlank()) {
+            map.putIfAbsent(key.toLowerCase(Locale.ROOT), match);
+        }
+    }
+
+	/**
+	 * Parses a semicolon-separated list of pronoun sets, using the result cache if this parser has one.
+	 * Results are immutable, so cached lists are shared between callers.
+	 */
 	public @NotNull List<PronounSet> parse(@NotNull String input) {
-		if (input == null || input.isBlank()) {
-			return Collections.emptyList();
+		if (cache == null || input == null) {
+			return parse((CharSequence) input);
 		}
+		return cache.computeIfAbsent(input, key -> parse((CharSequence) key));
+	}
 
-		final Set<PronounSet> resultSet = new LinkedHashSet<>(); // For order preservation and uniqueness
-		final String[] parts = input.split(";");
+	/**
+	 * Parses a semicolon-separated list of pronoun sets in a single pass over {@code input}.
+	 * Parts are matched against the predefined sets by hashing over their character ranges, so no substrings
+	 * or lowercased copies are created unless a part is a shorthand or custom set.
+	 * A single predefined set is returned as a shared immutable list.
+	 */
+	public @NotNull List<PronounSet> parse(@NotNull CharSequence input) {
+		if (input == null || isBlank(input)) {
+			return PronounList.of();
+		}
 
-		for (String part : parts) {
-			String trimmedPart = part.trim();
-			if (trimmedPart.isEmpty()) {
+		// The result set is only needed once there is more than one set to keep unique and in order
+		PronounSet first = null;
+		List<PronounSet> firstSingleton = null;
+		Set<PronounSet> resultSet = null;
+
+		final int length = input.length();
+		int partStart = 0;
+		while (partStart <= length) {
+			final int partEnd = indexOf(input, ';', partStart, length);
+			final int start = trimStart(input, partStart, partEnd);
+			final int end = trimEnd(input, start, partEnd);
+			partStart = partEnd + 1;
+			if (start == end) {
 				continue;
 			}
 
-            // Try direct lookup (case-insensitive)
-			PronounSet foundSet = predefinedLookup.get(trimmedPart.toLowerCase(Locale.ROOT));
-
-			if (foundSet != null) {
-                // Canonicalization logic (remains the same)
-                PronounSet canonicalSet = foundSet;
-                if (foundSet.toString().equalsIgnoreCase(PronounSet.Builtins.ASK.toString())) canonicalSet = PronounSet.Builtins.ASK;
-                else if (foundSet.toString().equalsIgnoreCase(PronounSet.Builtins.ANY.toString())) canonicalSet = PronounSet.Builtins.ANY;
-                else if (foundSet.toString().equalsIgnoreCase(PronounSet.Builtins.UNSET.toString())) canonicalSet = PronounSet.Builtins.UNSET;
-                else if (
-                    foundSet.subjective().equalsIgnoreCase(PronounSet.Builtins.HE.subjective()) &&
-                    foundSet.objective().equalsIgnoreCase(PronounSet.Builtins.HE.objective()) &&
-                    foundSet.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.HE.possessiveAdj()) &&
-                    foundSet.possessive().equalsIgnoreCase(PronounSet.Builtins.HE.possessive()) &&
-                    foundSet.reflexive().equalsIgnoreCase(PronounSet.Builtins.HE.reflexive()) &&
-                    foundSet.plural() == PronounSet.Builtins.HE.plural()
-                ) canonicalSet = PronounSet.Builtins.HE;
-                else if (
-                    foundSet.subjective().equalsIgnoreCase(PronounSet.Builtins.SHE.subjective()) &&
-                    foundSet.objective().equalsIgnoreCase(PronounSet.Builtins.SHE.objective()) &&
-                    foundSet.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.SHE.possessiveAdj()) &&
-                    foundSet.possessive().equalsIgnoreCase(PronounSet.Builtins.SHE.possessive()) &&
-                    foundSet.reflexive().equalsIgnoreCase(PronounSet.Builtins.SHE.reflexive()) &&
-                    foundSet.plural() == PronounSet.Builtins.SHE.plural()
-                ) canonicalSet = PronounSet.Builtins.SHE;
-                else if (
-                    foundSet.subjective().equalsIgnoreCase(PronounSet.Builtins.THEY.subjective()) &&
-                    foundSet.objective().equalsIgnoreCase(PronounSet.Builtins.THEY.objective()) &&
-                    foundSet.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.THEY.possessiveAdj()) &&
-                    foundSet.possessive().equalsIgnoreCase(PronounSet.Builtins.THEY.possessive()) &&
-                    foundSet.reflexive().equalsIgnoreCase(PronounSet.Builtins.THEY.reflexive()) &&
-                    foundSet.plural() == PronounSet.Builtins.THEY.plural()
-                ) canonicalSet = PronounSet.Builtins.THEY;
-                else if ( // Added IT canonicalization
-                    foundSet.subjective().equalsIgnoreCase(PronounSet.Builtins.IT.subjective()) &&
-                    foundSet.objective().equalsIgnoreCase(PronounSet.Builtins.IT.objective()) &&
-                    foundSet.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.IT.possessiveAdj()) &&
-                    foundSet.possessive().equalsIgnoreCase(PronounSet.Builtins.IT.possessive()) &&
-                    foundSet.reflexive().equalsIgnoreCase(PronounSet.Builtins.IT.reflexive()) &&
-                    foundSet.plural() == PronounSet.Builtins.IT.plural()
-                ) canonicalSet = PronounSet.Builtins.IT;
-
-				resultSet.add(canonicalSet);
+			PronounSet found = null;
+			PronounSet second = null;
+			List<PronounSet> foundSingleton = null;
+
+			final Match match = index.get(input, start, end);
+			if (match != null) {
+				found = match.canonical();
+				foundSingleton = match.singleton();
+			} else {
+				// As with String.split, trailing empty components are ignored
+				int componentsEnd = end;
+				while (componentsEnd > start && input.charAt(componentsEnd - 1) == '/') componentsEnd--;
+				final int components = componentsEnd == start ? 0 : 1 + count(input, '/', start, componentsEnd);
+
+				if (components == 2) {
+					// Try parsing as "subjective1/subjective2" shorthand
+					final int slash = indexOf(input, '/', start, componentsEnd);
+					final Match match1 = findPredefinedBySubjectiveOrShortform(input, start, slash);
+					final Match match2 = findPredefinedBySubjectiveOrShortform(input, slash + 1, componentsEnd);
+					if (match1 != null && match2 != null && !match1.set().equals(match2.set())) {
+						found = match1.canonical();
+						second = match2.canonical();
+					}
+				} else if (components == 5) {
+					found = parseCustom(input, start, componentsEnd);
+				}
+			}
+
+			// Not a predefined set, shorthand, or valid 5-part custom set. Silently ignore.
+			if (found == null) {
 				continue;
 			}
+			if (resultSet == null && first == null && second == null) {
+				first = found;
+				firstSingleton = foundSingleton;
+				continue;
+			}
+			if (resultSet == null) {
+				resultSet = new LinkedHashSet<>(); // For order preservation and uniqueness
+				if (first != null) resultSet.add(first);
+			}
+			resultSet.add(found);
+			if (second != null) resultSet.add(second);
+		}
 
-            // Try parsing as "subjective1/subjective2" shorthand
-            String[] shorthandComponents = trimmedPart.split("/");
-            if (shorthandComponents.length == 2) {
-                String key1 = shorthandComponents[0].trim().toLowerCase(Locale.ROOT);
-                String key2 = shorthandComponents[1].trim().toLowerCase(Locale.ROOT);
-
-                PronounSet set1 = findPredefinedBySubjectiveOrShortform(key1);
-                PronounSet set2 = findPredefinedBySubjectiveOrShortform(key2);
-
-                if (set1 != null && set2 != null && !set1.equals(set2)) {
-                    // Canonicalize both before adding
-                    resultSet.add(canonicalize(set1));
-                    resultSet.add(canonicalize(set2));
-                    continue; // Successfully parsed as shorthand
-                }
-            }
+		if (resultSet != null) return PronounList.of(resultSet); // Return immutable list
+		if (first == null) return PronounList.of();
+		return firstSingleton != null ? firstSingleton : PronounList.of(first);
+	}
 
-            // If not found in predefinedLookup and not a shorthand, try parsing as custom 5-part
-            String[] components = trimmedPart.split("/"); // Re-split, or use shorthandComponents if careful
-            if (components.length == 5) {
-                try {
-                    String subjective = components[0].trim();
-                    String objective = components[1].trim();
-                    String possessiveAdj = components[2].trim();
-                    String possessive = components[3].trim();
-                    String reflexivePart = components[4].trim();
-                    boolean isPlural = false;
-
-                    if (reflexivePart.toLowerCase(Locale.ROOT).endsWith(":p")) {
-                        isPlural = true;
-                        // Ensure :p is removed correctly, even if reflexivePart itself is short (e.g., "it:p")
-                        if (reflexivePart.length() > 2) {
-                             reflexivePart = reflexivePart.substring(0, reflexivePart.length() - 2).trim();
-                        } else {
-                            // This case implies the part before :p is empty or single char, likely invalid.
-                            // For now, this will result in an empty reflexivePart if it was just ":p" or "x:p"
-                            // The isEmpty check below should catch it if reflexivePart becomes empty.
-                             reflexivePart = "";
-                        }
-                    }
+	/**
+	 * Parses a custom 5-part set, returning the interned instance so players with the same custom pronouns share it.
+	 */
+	private static PronounSet parseCustom(CharSequence input, int start, int end) {
+		final String[] components = new String[5];
+		int componentStart = start;
+		for (int i = 0; i < components.length; i++) {
+			final int componentEnd = indexOf(input, '/', componentStart, end);
+			components[i] = input.subSequence(componentStart, componentEnd).toString().trim();
+			componentStart = componentEnd + 1;
+		}
 
-                    // Check if any component is blank OR equals "INVALID" (case-insensitive)
-                    boolean isActuallyInvalid = false;
-                    final String[] finalComponents = {subjective, objective, possessiveAdj, possessive, reflexivePart};
-                    for (String comp : finalComponents) {
-                        if (comp.isBlank() || comp.equalsIgnoreCase("INVALID")) {
-                            isActuallyInvalid = true;
-                            break;
-                        }
-                    }
-                    if (isActuallyInvalid) {
-                        // LOGGER.warning("Skipping malformed/invalid custom pronoun part: " + trimmedPart);
-                        continue;
-                    }
-                    resultSet.add(PronounSet.from(subjective, objective, possessiveAdj, possessive, reflexivePart, isPlural));
-                } catch (Exception e) {
-                    // LOGGER.warning("Failed to parse custom pronoun part: " + trimmedPart + " due to " + e.getMessage());
-                    // Silently ignore this part if any exception occurs during custom parsing
-                }
-            } else {
-                // Not a predefined set, not a 5-part custom set. Silently ignore.
-                // LOGGER.info("Skipping unparseable pronoun part: " + trimmedPart);
-            }
+		String reflexivePart = components[4];
+		boolean isPlural = false;
+		if (reflexivePart.toLowerCase(Locale.ROOT).endsWith(":p")) {
+			isPlural = true;
+			// A reflexive of just ":p" leaves nothing behind, which is rejected below
+			reflexivePart = reflexivePart.length() > 2 ? reflexivePart.substring(0, reflexivePart.length() - 2).trim() : "";
+			components[4] = reflexivePart;
 		}
-		return List.copyOf(resultSet); // Return immutable list
+
+		// Reject if any component is blank OR equals "INVALID" (case-insensitive)
+		for (String comp : components) {
+			if (comp.isBlank() || comp.equalsIgnoreCase("INVALID")) {
+				return null;
+			}
+		}
+		return PronounSetInterner.shared().intern(
+				PronounSet.from(components[0], components[1], components[2], components[3], reflexivePart, isPlural));
+	}
+
+	private static boolean isBlank(CharSequence input) {
+		for (int i = 0; i < input.length(); i++) {
+			if (!Character.isWhitespace(input.charAt(i))) return false;
+		}
+		return true;
+	}
+
+	private static int indexOf(CharSequence input, char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (input.charAt(i) == c) return i;
+		}
+		return to;
+	}
+
+	private static int count(CharSequence input, char c, int from, int to) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (input.charAt(i) == c) count++;
+		}
+		return count;
+	}
+
+	// Same definition of whitespace as String.trim()
+	private static int trimStart(CharSequence input, int from, int to) {
+		while (from < to && input.charAt(from) <= ' ') from++;
+		return from;
+	}
+
+	private static int trimEnd(CharSequence input, int from, int to) {
+		while (to > from && input.charAt(to - 1) <= ' ') to--;
+		return to;
+	}
+
+	/**
+	 * Gets the predefined sets this parser was built with, as they were when it was built.
+	 */
+	public PronounSupplier predefined() {
+		return predefined;
+	}
+
+	/**
+	 * The number of {@link #parse(String)} calls answered from the cache, or 0 if caching is disabled.
+	 */
+	public long cacheHits() {
+		return cache == null ? 0 : cache.hits();
+	}
+
+	/**
+	 * The number of {@link #parse(String)} calls that missed the cache, or 0 if caching is disabled.
+	 */
+	public long cacheMisses() {
+		return cache == null ? 0 : cache.misses();
 	}
 
 	public String toString(@NotNull List<PronounSet> pronounSets) {
@@ -257,74 +390,38 @@ public class PronounParser {
         return names.stream().sorted().collect(Collectors.toList());
     }
 
-    private PronounSet canonicalize(PronounSet set) {
+    private static PronounSet canonicalize(PronounSet set) {
         if (set == null) return null;
 
-        // Check against Special Sets by their unique names
-        if (set.toString().equalsIgnoreCase(PronounSet.Builtins.ASK.toString())) return PronounSet.Builtins.ASK;
-        if (set.toString().equalsIgnoreCase(PronounSet.Builtins.ANY.toString())) return PronounSet.Builtins.ANY;
-        if (set.toString().equalsIgnoreCase(PronounSet.Builtins.UNSET.toString())) return PronounSet.Builtins.UNSET;
-
-        // Check against other Builtins by comparing all 5 grammatical forms and plurality.
-        if (set.subjective().equalsIgnoreCase(PronounSet.Builtins.HE.subjective()) &&
-            set.objective().equalsIgnoreCase(PronounSet.Builtins.HE.objective()) &&
-            set.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.HE.possessiveAdj()) &&
-            set.possessive().equalsIgnoreCase(PronounSet.Builtins.HE.possessive()) &&
-            set.reflexive().equalsIgnoreCase(PronounSet.Builtins.HE.reflexive()) &&
-            set.plural() == PronounSet.Builtins.HE.plural()
-        ) return PronounSet.Builtins.HE;
-
-        if (set.subjective().equalsIgnoreCase(PronounSet.Builtins.SHE.subjective()) &&
-            set.objective().equalsIgnoreCase(PronounSet.Builtins.SHE.objective()) &&
-            set.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.SHE.possessiveAdj()) &&
-            set.possessive().equalsIgnoreCase(PronounSet.Builtins.SHE.possessive()) &&
-            set.reflexive().equalsIgnoreCase(PronounSet.Builtins.SHE.reflexive()) &&
-            set.plural() == PronounSet.Builtins.SHE.plural()
-        ) return PronounSet.Builtins.SHE;
-
-        if (set.subjective().equalsIgnoreCase(PronounSet.Builtins.THEY.subjective()) &&
-            set.objective().equalsIgnoreCase(PronounSet.Builtins.THEY.objective()) &&
-            set.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.THEY.possessiveAdj()) &&
-            set.possessive().equalsIgnoreCase(PronounSet.Builtins.THEY.possessive()) &&
-            set.reflexive().equalsIgnoreCase(PronounSet.Builtins.THEY.reflexive()) &&
-            set.plural() == PronounSet.Builtins.THEY.plural()
-        ) return PronounSet.Builtins.THEY;
-
-        if (set.subjective().equalsIgnoreCase(PronounSet.Builtins.IT.subjective()) &&
-            set.objective().equalsIgnoreCase(PronounSet.Builtins.IT.objective()) &&
-            set.possessiveAdj().equalsIgnoreCase(PronounSet.Builtins.IT.possessiveAdj()) &&
-            set.possessive().equalsIgnoreCase(PronounSet.Builtins.IT.possessive()) &&
-            set.reflexive().equalsIgnoreCase(PronounSet.Builtins.IT.reflexive()) &&
-            set.plural() == PronounSet.Builtins.IT.plural()
-        ) return PronounSet.Builtins.IT;
-
-        return set; // Return original if no builtin match
+        // Special sets are matched by their unique names first, then everything else by its grammatical forms
+        final PronounSet special = CANONICAL_BY_NAME.get(set.toString().toLowerCase(Locale.ROOT));
+        if (special != null) return special;
+        return CANONICAL_BY_FORMS.getOrDefault(canonicalKey(set), set); // Return original if no builtin match
+    }
+
+    /**
+     * Normalizes a set's five grammatical forms and plurality, for example "they/them/their/theirs/themselves:p".
+     * Unlike {@link PronounSet#toFullString()}, special sets are keyed by the forms they proxy rather than their name.
+     */
+    private static String canonicalKey(PronounSet set) {
+        final String key = String.join("/",
+                set.subjective(), set.objective(), set.possessiveAdj(), set.possessive(), set.reflexive());
+        return key.toLowerCase(Locale.ROOT) + (set.plural() ? ":p" : "");
     }
 
-    private PronounSet findPredefinedBySubjectiveOrShortform(String key) {
-        String lowerKey = key.toLowerCase(Locale.ROOT);
+    private Match findPredefinedBySubjectiveOrShortform(CharSequence input, int start, int end) {
+        start = trimStart(input, start, end);
+        end = trimEnd(input, start, end);
 
-        // Direct lookup first (covers cases like "he/him", "ask")
-        PronounSet directMatch = predefinedLookup.get(lowerKey);
+        // Direct lookup first (covers cases like "he/him", "ask", and every full form)
+        final Match directMatch = index.get(input, start, end);
         if (directMatch != null) {
             return directMatch;
         }
-
-        // If not direct, iterate and check subjective forms and string representations
-        for (PronounSet ps : predefinedLookup.values()) {
-            if (ps.subjective().equalsIgnoreCase(lowerKey)) {
-                return ps;
-            }
-            // toString() for BuiltinPronounSet is "subj/obj", for SpecialPronounSet is its name.
-            if (ps.toString().equalsIgnoreCase(lowerKey)) {
-                return ps;
-            }
-            // toFullString() for BuiltinPronounSet is "subj/obj/adj/poss/refl", for SpecialPronounSet is its name.
-            // This might be redundant if toString() already covers common cases, but good for completeness.
-            if (ps.toFullString().equalsIgnoreCase(lowerKey)) {
-                return ps;
-            }
+        final Match subjectiveMatch = subjectiveIndex.get(input, start, end);
+        if (subjectiveMatch != null) {
+            return subjectiveMatch;
         }
-        return null; // Not found
+        return displayIndex.get(input, start, end); // Null if not found
     }
 }
@@ -1,6 +1,7 @@
 package net.cufufy.pronouns.api;
 
 import net.cufufy.pronouns.api.supplier.PronounSupplier;
+import net.cufufy.pronouns.api.set.PronounList;
 import net.cufufy.pronouns.api.set.PronounSet;
 import org.jetbrains.annotations.NotNull;
 
@@ -13,7 +14,7 @@ import java.util.UUID;
  */
 public interface PronounStore {
 
-    List<PronounSet> UNSET_LIST = List.of(PronounSet.Builtins.UNSET);
+    List<PronounSet> UNSET_LIST = PronounList.of(PronounSet.Builtins.UNSET);
 
     /**
      * Gets all predefined pronoun sets.
@@ -25,6 +26,7 @@ public interface PronounStore {
      *
      * @param player the player's UUID
      * @return a list of pronouns a player has set, or a singleton list of {@link PronounSet.Builtins#UNSET} if none have been set.
+     * The builtin stores return a {@link PronounList}.
      */
     List<PronounSet> sets(UUID player);
 
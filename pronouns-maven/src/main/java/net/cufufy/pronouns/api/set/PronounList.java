@@ -0,0 +1,100 @@
+package net.cufufy.pronouns.api.set;
+
+import net.cufufy.pronouns.api.PronounCodec;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of pronoun sets that remembers the strings derived from it.
+ * <p>
+ * Its {@link #format() display form}, {@link #toFullString() storage form} and hash code are each computed on first use
+ * and then kept, so repeatedly formatting the same player's pronouns doesn't rebuild them.
+ * Stores, parsers and codecs hand these out, and they are shared wherever possible.
+ */
+public final class PronounList extends AbstractList<PronounSet> implements RandomAccess {
+    private static final PronounList EMPTY = new PronounList(new PronounSet[0]);
+
+    private final PronounSet[] sets;
+    // Racy but safe, as with String.hashCode: every thread computes the same immutable value
+    private String display;
+    private String storage;
+    private int hash;
+    private boolean hashIsZero;
+
+    private PronounList(PronounSet[] sets) {
+        this.sets = sets;
+    }
+
+    public static PronounList of() {
+        return EMPTY;
+    }
+
+    public static PronounList of(@NotNull PronounSet set) {
+        return new PronounList(new PronounSet[]{Objects.requireNonNull(set)});
+    }
+
+    /**
+     * Gets a list of the given sets, returning it as-is if it is already a {@link PronounList}.
+     */
+    public static PronounList of(@NotNull Collection<? extends PronounSet> sets) {
+        if (sets instanceof PronounList list) return list;
+        if (sets.isEmpty()) return EMPTY;
+        final PronounSet[] array = sets.toArray(new PronounSet[0]);
+        for (final PronounSet set : array) Objects.requireNonNull(set);
+        return new PronounList(array);
+    }
+
+    @Override
+    public PronounSet get(int index) {
+        return sets[index];
+    }
+
+    @Override
+    public int size() {
+        return sets.length;
+    }
+
+    /**
+     * The display form of this list, as given by {@link PronounSet#format(List)}.
+     */
+    public String format() {
+        String display = this.display;
+        if (display == null) this.display = display = PronounSet.format(Arrays.asList(sets));
+        return display;
+    }
+
+    /**
+     * The storage form of this list, as given by {@link PronounCodec#toText(List)}.
+     */
+    public String toFullString() {
+        String storage = this.storage;
+        if (storage == null) this.storage = storage = PronounCodec.toText(Arrays.asList(sets));
+        return storage;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+        if (hash == 0 && !hashIsZero) {
+            hash = super.hashCode();
+            if (hash == 0) hashIsZero = true;
+            else this.hash = hash;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof PronounList other) {
+            return sets.length == other.sets.length && hashCode() == other.hashCode() && Arrays.equals(sets, other.sets);
+        }
+        return super.equals(o);
+    }
+}
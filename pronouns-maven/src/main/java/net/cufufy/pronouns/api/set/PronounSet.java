@@ -141,9 +141,11 @@ public interface PronounSet {
      * If there's one set in the list, returns the value of {@link #toString()}.
      * Otherwise, maps each set to either its subjective pronoun or its name depending on its type,
      * and joins them with a slash.
+     * A {@link PronounList} only formats itself once.
      * @param sets a list of pronoun sets, containing at least one element.
      */
     static String format(List<PronounSet> sets) {
+        if (sets instanceof PronounList list && !list.isEmpty()) return list.format();
         if (sets == null || sets.isEmpty()) {
             // Or return a default string like "Unset" or an empty string,
             // depending on desired behavior for empty/null lists.
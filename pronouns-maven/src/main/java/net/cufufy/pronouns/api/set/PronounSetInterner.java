@@ -0,0 +1,113 @@
+package net.cufufy.pronouns.api.set;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent pool of canonical pronoun set instances.
+ * <p>
+ * Interning a set returns an existing instance equal to it if one is still in use, so players sharing the same
+ * custom pronouns share one object. Sets are only weakly referenced, and are dropped from the pool once nothing else uses them.
+ */
+public final class PronounSetInterner {
+
+    private static final PronounSetInterner SHARED = new PronounSetInterner();
+
+    private final Map<Ref, Ref> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<PronounSet> queue = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Gets the pool shared by every {@link net.cufufy.pronouns.api.PronounParser}.
+     */
+    public static PronounSetInterner shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the canonical instance of a set, adding it to the pool if there is none.
+     */
+    public @NotNull PronounSet intern(@NotNull PronounSet set) {
+        expunge();
+        final var ref = new Ref(set, queue);
+        while (true) {
+            final var existing = pool.putIfAbsent(ref, ref);
+            if (existing == null) {
+                misses.increment();
+                return set;
+            }
+            final var canonical = existing.get();
+            if (canonical != null) {
+                hits.increment();
+                return canonical;
+            }
+            // Collected between lookup and read - drop the stale entry and try again
+            pool.remove(existing, existing);
+        }
+    }
+
+    /**
+     * The number of sets currently in the pool, including any that have been collected but not yet expunged.
+     */
+    public int size() {
+        return pool.size();
+    }
+
+    /**
+     * The number of {@link #intern(PronounSet)} calls that returned an existing instance.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of {@link #intern(PronounSet)} calls that added a new instance.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * The fraction of {@link #intern(PronounSet)} calls that returned an existing instance, or 0 if none have been made.
+     */
+    public double hitRate() {
+        final long hits = hits();
+        final long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private void expunge() {
+        Object ref;
+        while ((ref = queue.poll()) != null) {
+            pool.remove(ref, ref);
+        }
+    }
+
+    private static final class Ref extends WeakReference<PronounSet> {
+        private final int hash;
+
+        Ref(PronounSet set, ReferenceQueue<PronounSet> queue) {
+            super(set, queue);
+            this.hash = set.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Ref other) || hash != other.hash) return false;
+            final var set = get();
+            return set != null && set.equals(other.get());
+        }
+    }
+}
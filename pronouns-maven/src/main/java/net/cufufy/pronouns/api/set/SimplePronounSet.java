@@ -16,5 +16,17 @@ public record SimplePronounSet(
     public String toString() {
         return capitalize(subjective()) + "/" + capitalize(objective());
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true; // Sets from a PronounParser are interned, so this is the common case
+        return o instanceof SimplePronounSet other
+                && plural == other.plural
+                && subjective.equals(other.subjective)
+                && objective.equals(other.objective)
+                && possessiveAdj.equals(other.possessiveAdj)
+                && possessive.equals(other.possessive)
+                && reflexive.equals(other.reflexive);
+    }
 }
 
@@ -0,0 +1,69 @@
+package net.cufufy.pronouns.api.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+public class BatchUtils {
+    /**
+     * Below this many inputs, work is done on the calling thread rather than split up.
+     */
+    private static final int THRESHOLD = 512;
+
+    private BatchUtils() {
+    }
+
+    /**
+     * Applies a function to every distinct input, splitting the work across the common fork-join pool.
+     * The function must be thread-safe, and is called once per distinct input.
+     *
+     * @return a map of each distinct input to its result
+     */
+    public static <V> Map<String, V> mapDistinct(Collection<String> inputs, Function<String, V> mapper) {
+        final String[] distinct = new LinkedHashSet<>(inputs).toArray(String[]::new);
+        final Object[] results = new Object[distinct.length];
+        final var task = new MapTask(distinct, results, mapper, 0, distinct.length);
+        if (distinct.length <= THRESHOLD) task.compute();
+        else ForkJoinPool.commonPool().invoke(task);
+
+        final Map<String, V> out = new HashMap<>(distinct.length * 4 / 3 + 1);
+        for (int i = 0; i < distinct.length; i++) {
+            @SuppressWarnings("unchecked") final V result = (V) results[i];
+            out.put(distinct[i], result);
+        }
+        return out;
+    }
+
+    @SuppressWarnings("serial") // Never serialized
+    private static final class MapTask extends RecursiveAction {
+        private final String[] inputs;
+        private final Object[] results;
+        private final Function<String, ?> mapper;
+        private final int from;
+        private final int to;
+
+        MapTask(String[] inputs, Object[] results, Function<String, ?> mapper, int from, int to) {
+            this.inputs = inputs;
+            this.results = results;
+            this.mapper = mapper;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = mapper.apply(inputs[i]);
+                }
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new MapTask(inputs, results, mapper, from, mid), new MapTask(inputs, results, mapper, mid, to));
+        }
+    }
+}
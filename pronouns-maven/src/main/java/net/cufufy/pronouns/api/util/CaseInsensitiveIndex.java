@@ -0,0 +1,96 @@
+package net.cufufy.pronouns.api.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable, open-addressed lookup table keyed by case-insensitive strings.
+ * <p>
+ * Lookups hash over a range of a {@link CharSequence}, so callers can query a slice of a larger input
+ * without creating a substring or lowercased copy of it. Keys are matched as if by {@code toLowerCase(Locale.ROOT)}.
+ *
+ * @param <V> the value type
+ */
+public final class CaseInsensitiveIndex<V> {
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    /**
+     * Builds an index from a map whose keys are already lowercased with {@link Locale#ROOT}.
+     */
+    public CaseInsensitiveIndex(Map<String, ? extends V> source) {
+        int capacity = 4;
+        while (capacity < source.size() * 2) capacity <<= 1;
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = source.size();
+        for (final var entry : source.entrySet()) {
+            final String key = entry.getKey();
+            int slot = hash(key, 0, key.length()) & mask;
+            while (keys[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = entry.getValue();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the value for a whole sequence.
+     */
+    public @Nullable V get(CharSequence key) {
+        return get(key, 0, key.length());
+    }
+
+    /**
+     * Gets the value for the characters of {@code seq} between {@code start} (inclusive) and {@code end} (exclusive).
+     */
+    public @Nullable V get(CharSequence seq, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (seq.charAt(i) >= 0x80) {
+                // Non-ASCII case folding is locale-sensitive and may change the length; defer to the JDK.
+                final String lower = seq.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+                return probe(lower, 0, lower.length());
+            }
+        }
+        return probe(seq, start, end);
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable V probe(CharSequence seq, int start, int end) {
+        final int length = end - start;
+        int slot = hash(seq, start, end) & mask;
+        String candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (candidate.length() == length && matches(candidate, seq, start)) return (V) values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean matches(String key, CharSequence seq, int start) {
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != lower(seq.charAt(start + i))) return false;
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence seq, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + lower(seq.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
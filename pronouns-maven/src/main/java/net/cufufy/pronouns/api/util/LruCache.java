@@ -0,0 +1,119 @@
+package net.cufufy.pronouns.api.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe cache that evicts the least recently used entries.
+ * <p>
+ * Entries are spread over independently locked segments, each with its own share of the capacity,
+ * so concurrent callers rarely contend. Eviction is therefore least-recently-used per segment rather than globally.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class LruCache<K, V> {
+    private final Segment<K, V>[] segments;
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LruCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        int count = 1;
+        while (count < 16 && count * 2 <= capacity) count <<= 1;
+        // Generic arrays can't be created directly
+        @SuppressWarnings({"unchecked", "rawtypes"}) final Segment<K, V>[] segments = new Segment[count];
+        this.segments = segments;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>((capacity + count - 1) / count);
+        }
+        this.capacity = capacity;
+    }
+
+    private Segment<K, V> segment(Object key) {
+        final int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Gets a cached value, marking it as recently used.
+     */
+    public @Nullable V get(K key) {
+        final var segment = segment(key);
+        final V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    public void put(K key, V value) {
+        final var segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * Gets a cached value, or computes and caches it if absent.
+     * The loader runs outside of any lock, so two threads missing on the same key may both compute it.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        final V cached = get(key);
+        if (cached != null) return cached;
+        final V value = loader.apply(key);
+        if (value != null) put(key, value);
+        return value;
+    }
+
+    public void clear() {
+        for (final var segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (final var segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @SuppressWarnings("serial") // Never serialized
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package net.cufufy.pronouns.common;
 
 import net.cufufy.pronouns.api.set.PronounSet;
 import net.cufufy.pronouns.api.PronounParser;
+import net.cufufy.pronouns.api.util.BatchUtils;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.IOException;
@@ -13,7 +14,7 @@ public class LegacyMigrator {
 
     private LegacyMigrator() {}
 
-    private static final PronounParser parser = new PronounParser(PronounSet.builtins);
+    private static final PronounParser parser = new PronounParser(PronounSet.builtins, PronounParser.DEFAULT_CACHE_CAPACITY);
 
     public static PronounSet fromLegacyString(final String string) {
         final var split = string.split("/");
@@ -79,11 +80,16 @@ public class LegacyMigrator {
     public static Map<UUID, List<PronounSet>> fromYaml(final Path path) {
         try (final var file = Files.newInputStream(path)) {
             final var loaded = (Map<String, String[]>) yaml.load(file);
+            // Most players share a few legacy strings, so convert each distinct one once, in parallel
+            final var converted = BatchUtils.mapDistinct(
+                    loaded.values().stream().flatMap(Arrays::stream).toList(),
+                    LegacyMigrator::fromLegacyString
+            );
             final var out = new HashMap<UUID, List<PronounSet>>();
-            loaded.forEach((uuid, sets) -> out.put(UUID.fromString(uuid), Arrays.stream(sets).map(LegacyMigrator::fromLegacyString).toList()));
+            loaded.forEach((uuid, sets) -> out.put(UUID.fromString(uuid), Arrays.stream(sets).map(converted::get).toList()));
             file.close();
             Files.move(path, path.resolveSibling("legacy-datastore.yml"));
-            return out;
+            return Collections.unmodifiableMap(out);
         } catch (ClassCastException e) {
             throw new MigrationException("Legacy datastore file is incorrectly formatted");
         } catch (IOException e) {
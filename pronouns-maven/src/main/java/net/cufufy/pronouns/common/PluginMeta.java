@@ -1,6 +1,7 @@
 package net.cufufy.pronouns.common;
 
 import net.cufufy.pronouns.common.platform.Platform;
+import net.cufufy.pronouns.common.util.AtomicFiles;
 import net.cufufy.pronouns.common.util.PropertiesUtil;
 
 import java.io.IOException;
@@ -16,13 +17,13 @@ public class PluginMeta {
     private final Path filePath;
 
     private void save() {
-        try (final var stream = Files.newOutputStream(filePath)) {
-            final var props = new Properties();
-            props.put("lastPluginVersion", platform.currentVersion());
-            props.store(stream, """
+        final var props = new Properties();
+        props.put("lastPluginVersion", platform.currentVersion());
+        try {
+            AtomicFiles.write(filePath, platform.config().durability(), stream -> props.store(stream, """
                     ProNouns meta file.
                     Do not edit!
-                    """);
+                    """));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -3,35 +3,45 @@ package net.cufufy.pronouns.common;
 import net.kyori.adventure.translation.GlobalTranslator;
 import net.cufufy.pronouns.api.ProNounsPlugin;
 import net.cufufy.pronouns.api.PronounStore;
+import net.cufufy.pronouns.api.PronounCodec;
 import net.cufufy.pronouns.api.PronounParser;
+import net.cufufy.pronouns.api.supplier.AggregateSupplier;
+import net.cufufy.pronouns.api.supplier.PronounSupplier;
 import net.cufufy.pronouns.common.cmd.*;
 import net.cufufy.pronouns.common.message.Formatter;
 import net.cufufy.pronouns.common.message.ProNounsTranslations;
 import net.cufufy.pronouns.common.placeholder.Placeholders;
 import net.cufufy.pronouns.common.platform.Platform;
+import net.cufufy.pronouns.common.store.StoreBackups;
 import net.cufufy.pronouns.common.store.StoreFactory;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class ProNouns implements ProNounsPlugin {
 
-    private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+    private final ScheduledThreadPoolExecutor executorService = new ScheduledThreadPoolExecutor(1, r -> {
         final var thread = new Thread(r);
         thread.setName("ProNouns worker");
         return thread;
     });
-    private PronounParser parser;
+    private volatile PronounParser parser;
+    private volatile PronounCodec codec;
     private final Platform platform;
     private final PluginMeta meta;
     private final Placeholders placeholders = new Placeholders(this);
     private PronounStore store;
+    private @Nullable StoreBackups backups;
     private @Nullable
     final UpdateChecker checker;
     private Formatter formatter;
@@ -97,13 +107,78 @@ public class ProNouns implements ProNounsPlugin {
     }
 
     public void createStore(StoreFactory factory) {
+        // The catalog comes first, as stores need its codec to read data
+        final var catalog = loadCatalog();
+        this.codec = catalog.codec();
         this.store = factory.create(platform.config().store().toLowerCase(Locale.ROOT).trim(), this);
-        this.parser = new PronounParser(() -> store.predefined().get());
+        this.parser = compileParser(catalog);
+        this.backups = new StoreBackups(store, platform.dataDir().resolve("backups"), platform.config().backups(),
+                platform.config().compressFiles(), platform.config().durability(), platform.logger());
+        backups.start();
     }
 
     public void reload() {
         platform.config().reload();
         this.formatter = new Formatter(platform);
+        reloadCatalog();
+    }
+
+    /**
+     * Re-reads the pronoun catalog and builds a new parser for it on the worker thread, then swaps it in.
+     * Parsers are never modified once built, so threads parsing with the previous one are unaffected.
+     */
+    public CompletableFuture<PronounParser> reloadCatalog() {
+        return CompletableFuture.supplyAsync(() -> {
+                    final var catalog = loadCatalog();
+                    // Catalog IDs are never reassigned, so the new codec can read everything the old one wrote
+                    this.codec = catalog.codec();
+                    return compileParser(catalog);
+                }, executorService)
+                .whenComplete((parser, e) -> {
+                    if (e != null) {
+                        platform.logger().error("Failed to reload pronoun catalog", e instanceof CompletionException ? e.getCause() : e);
+                        return;
+                    }
+                    this.parser = parser;
+                });
+    }
+
+    private PronounCatalog loadCatalog() {
+        try {
+            return PronounCatalog.load(platform.dataDir(), platform.config().durability(), platform.logger());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PronounParser compileParser(PronounCatalog catalog) {
+        final var supplier = new AggregateSupplier(store.predefined(), catalog.sets());
+        return new PronounParser(supplier, platform.config().parseCacheSize(), catalog.names());
+    }
+
+    /**
+     * Lets queued work finish, then closes the store. Called when the plugin is disabled.
+     */
+    public void shutdown() {
+        if (backups != null) backups.stop();
+        // Queued tasks still run, but delayed ones (such as pending saves) are dropped rather than waited for,
+        // however long their delay. Closing the store flushes every pending save right away instead.
+        executorService.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+                platform.logger().warn("Timed out waiting for ProNouns tasks to finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (store instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                platform.logger().error("Failed to close pronoun store: " + e.getMessage());
+            }
+        }
     }
 
     public Platform platform() {
@@ -120,6 +195,18 @@ public class ProNouns implements ProNounsPlugin {
         return parser;
     }
 
+    @Override
+    public PronounCodec codec() {
+        return codec;
+    }
+
+    /**
+     * Gets the predefined sets known to {@link #parser()}: the store's sets plus the server's catalog.
+     */
+    public PronounSupplier predefined() {
+        return parser.predefined();
+    }
+
     public Formatter formatter() {
         return formatter;
     }
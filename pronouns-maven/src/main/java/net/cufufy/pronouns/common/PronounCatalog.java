@@ -0,0 +1,140 @@
+package net.cufufy.pronouns.common;
+
+import net.cufufy.pronouns.api.PronounCodec;
+import net.cufufy.pronouns.api.PronounParser;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.supplier.FixedSupplier;
+import net.cufufy.pronouns.common.util.AtomicFiles;
+import net.cufufy.pronouns.common.util.PropertiesUtil;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Server-defined pronoun sets, such as neopronouns, that players can pick by name like the builtins.
+ * <p>
+ * Each entry in the catalog file maps a name to a full pronoun set, for example {@code xe = xe/xem/xyr/xyrs/xemself}.
+ * Every set that has ever been in the catalog is also given a permanent ID in a separate file,
+ * so that data encoded by a {@link PronounCodec} stays readable after the catalog changes.
+ */
+public class PronounCatalog {
+
+    public static final String FILE_NAME = "pronouns-catalog.cfg";
+    public static final String IDS_FILE_NAME = "pronouns-catalog-ids.cfg";
+
+    private static final PronounParser parser = new PronounParser(PronounSet.builtins);
+
+    private final FixedSupplier sets;
+    private final Map<String, PronounSet> names;
+    private final PronounCodec codec;
+
+    private PronounCatalog(FixedSupplier sets, Map<String, PronounSet> names, PronounCodec codec) {
+        this.sets = sets;
+        this.names = names;
+        this.codec = codec;
+    }
+
+    /**
+     * The sets currently in the catalog.
+     */
+    public FixedSupplier sets() {
+        return sets;
+    }
+
+    /**
+     * The sets currently in the catalog, by the names they are listed under.
+     */
+    public Map<String, PronounSet> names() {
+        return names;
+    }
+
+    /**
+     * A codec that knows the builtins and every set that has been in this server's catalog.
+     */
+    public PronounCodec codec() {
+        return codec;
+    }
+
+    /**
+     * Reads the catalog from a directory, creating it from the default if it doesn't exist,
+     * and assigns IDs to any sets that don't have one yet.
+     * Entries that aren't a single valid pronoun set are skipped with a warning.
+     *
+     * @param durability how to write the ID file when new IDs are assigned
+     * @throws IOException if the ID file can't be read, or has been edited into something invalid
+     */
+    public static PronounCatalog load(Path dataDir, AtomicFiles.Durability durability, Logger logger) throws IOException {
+        final var path = dataDir.resolve(FILE_NAME);
+        if (!Files.exists(path)) {
+            try (final var catalog = PronounCatalog.class.getResourceAsStream("/pronouns-catalog-default.cfg")) {
+                if (catalog == null) throw new IOException("The default pronoun catalog is missing from the plugin jar");
+                Files.copy(catalog, path);
+            }
+        }
+        final var props = PropertiesUtil.fromFile(path);
+        final Set<PronounSet> sets = new HashSet<>();
+        final Map<String, PronounSet> names = new HashMap<>();
+        for (final var name : props.stringPropertyNames()) {
+            final var value = props.getProperty(name);
+            final var parsed = parser.parse(value);
+            if (parsed.size() != 1) {
+                logger.warn("Skipping catalog entry " + name + ": " + value + " is not a single pronoun set.");
+                continue;
+            }
+            sets.add(parsed.get(0));
+            names.put(name, parsed.get(0));
+        }
+        return new PronounCatalog(new FixedSupplier(Set.copyOf(sets)), Map.copyOf(names), new PronounCodec(loadIds(dataDir.resolve(IDS_FILE_NAME), sets, durability)));
+    }
+
+    /**
+     * Reads every assigned ID. Stored data may refer to any of them, so an entry that can't be read is an error rather
+     * than something to skip: skipping it would make that data unreadable.
+     */
+    private static Map<Integer, PronounSet> loadIds(Path path, Set<PronounSet> sets, AtomicFiles.Durability durability) throws IOException {
+        final var props = Files.exists(path) ? PropertiesUtil.fromFile(path) : new Properties();
+        final Map<Integer, PronounSet> ids = new HashMap<>();
+        int nextId = PronounCodec.FIRST_CUSTOM_ID;
+        for (final var key : props.stringPropertyNames()) {
+            final int id;
+            try {
+                id = Integer.parseInt(key.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException(IDS_FILE_NAME + " has an invalid ID \"" + key + "\". Restore the file from a backup.");
+            }
+            if (id < PronounCodec.FIRST_CUSTOM_ID) {
+                throw new IOException(IDS_FILE_NAME + " has ID " + id + ", which is reserved for builtin sets. Restore the file from a backup.");
+            }
+            final var parsed = parser.parse(props.getProperty(key));
+            if (parsed.size() != 1) {
+                throw new IOException(IDS_FILE_NAME + " has an invalid set for ID " + id + ": \"" + props.getProperty(key)
+                        + "\". Restore the file from a backup.");
+            }
+            nextId = Math.max(nextId, id + 1);
+            ids.put(id, parsed.get(0));
+        }
+
+        boolean changed = false;
+        for (final var set : sets) {
+            if (ids.containsValue(set)) continue;
+            ids.put(nextId, set);
+            props.setProperty(String.valueOf(nextId), set.toFullString());
+            nextId++;
+            changed = true;
+        }
+        if (changed) {
+            // Binary data can't be read without this file, so it must never be left half-written
+            AtomicFiles.write(path, durability, out -> props.store(out, """
+                    ProNouns catalog IDs, used to store catalog pronouns compactly.
+                    Do not edit!"""));
+        }
+        return ids;
+    }
+}
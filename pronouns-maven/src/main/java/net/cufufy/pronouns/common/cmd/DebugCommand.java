@@ -3,10 +3,13 @@ package net.cufufy.pronouns.common.cmd;
 import cloud.commandframework.Command;
 import cloud.commandframework.meta.CommandMeta;
 import net.kyori.adventure.text.Component;
+import net.cufufy.pronouns.api.set.PronounSetInterner;
 import net.cufufy.pronouns.common.ProNouns;
 import net.cufufy.pronouns.common.platform.CommandSender;
 import net.cufufy.pronouns.common.platform.Platform;
 import net.cufufy.pronouns.common.platform.ProNounsPermission;
+import net.cufufy.pronouns.common.store.FilePronounStore;
+import net.cufufy.pronouns.common.util.AtomicFiles;
 
 public class DebugCommand implements ProNounsCommand {
 
@@ -15,7 +18,9 @@ public class DebugCommand implements ProNounsCommand {
             %s
             Store %s
             Config %s
-            %s predefined sets""";
+            %s predefined sets
+            %s interned sets (%.1f%% hit rate)
+            %s file writes (%.2f ms average, %.2f ms of it syncing)%s""";
 
     private final ProNouns plugin;
     private final Platform platform;
@@ -42,14 +47,22 @@ public class DebugCommand implements ProNounsCommand {
                 .hidden()
                 .permission(ProNounsPermission.DEBUG.key)
                 .meta(CommandMeta.DESCRIPTION, CommandUtils.description("debug"))
-                .handler(ctx -> ctx.getSender().sendMessage(Component.text(
-                        String.format(DEBUG_FORMAT, platform.currentVersion(), platform.name(), platform.config().updateChannel(),
-                                // plugin.meta().identifier(), // Identifier removed
-                                "N/A", // Placeholder for the removed identifier
-                                shortenedClassName(plugin.store().getClass()),
-                                shortenedClassName(platform.config().getClass()),
-                                plugin.store().predefined().get().size()
-                        )
-                )));
+                .handler(ctx -> {
+                    final var writes = AtomicFiles.stats();
+                    ctx.getSender().sendMessage(Component.text(
+                            String.format(DEBUG_FORMAT, platform.currentVersion(), platform.name(), platform.config().updateChannel(),
+                                    // plugin.meta().identifier(), // Identifier removed
+                                    "N/A", // Placeholder for the removed identifier
+                                    shortenedClassName(plugin.store().getClass()),
+                                    shortenedClassName(platform.config().getClass()),
+                                    plugin.predefined().get().size(),
+                                    PronounSetInterner.shared().size(),
+                                    PronounSetInterner.shared().hitRate() * 100,
+                                    writes.writes(), writes.averageWriteMillis(), writes.averageSyncMillis(),
+                                    plugin.store() instanceof FilePronounStore file ?
+                                            String.format("\n%s saves (%s changes coalesced)", file.saves(), file.coalescedSaves()) : ""
+                            )
+                    ));
+                });
     }
 }
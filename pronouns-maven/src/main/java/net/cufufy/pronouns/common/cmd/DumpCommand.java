@@ -7,8 +7,13 @@ import net.cufufy.pronouns.common.platform.CommandSender;
 import net.cufufy.pronouns.common.platform.Platform;
 import net.cufufy.pronouns.common.platform.ProNounsPermission;
 import net.cufufy.pronouns.common.store.FilePronounStore;
+import net.cufufy.pronouns.common.store.PronounSerializer;
+import net.cufufy.pronouns.common.store.StreamingPronounStore;
+import net.cufufy.pronouns.common.util.AtomicFiles;
+import net.cufufy.pronouns.common.util.PropertiesUtil;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -26,11 +31,29 @@ public class DumpCommand implements ProNounsCommand {
     }
 
     private synchronized String dump() throws IOException {
-        final var dump = plugin.store().dump();
         final var date = DATE_FORMAT.format(new Date());
-        final String fileName = "pronouns-dump-" + date + ".properties";
+        final boolean compress = platform.config().compressFiles();
+        final String fileName = "pronouns-dump-" + date + (compress ? ".properties.gz" : ".properties");
         final var path = platform.dataDir().resolve(fileName);
-        FilePronounStore.writeToFile(dump, path, new Date().toString());
+        if (plugin.store() instanceof StreamingPronounStore streaming) {
+            // Write each player as it's read, so the store never has to fit in memory
+            AtomicFiles.write(path, platform.config().durability(), stream -> {
+                try (final var out = PropertiesUtil.writer(stream, new Date().toString(), compress)) {
+                    streaming.forEachStored((player, sets) -> {
+                        try {
+                            out.put(player.toString(), PronounSerializer.TEXT.serialize(sets));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            });
+        } else {
+            FilePronounStore.writeToFile(plugin.store().dump(), path, new Date().toString(), PronounSerializer.TEXT, compress,
+                    platform.config().durability());
+        }
         return fileName;
     }
 
@@ -42,13 +65,18 @@ public class DumpCommand implements ProNounsCommand {
                 .handler(ctx -> {
                     final var f = plugin.formatter();
                     ctx.getSender().sendMessage(f.translated("pronouns.command.dump.start"));
-                    final String fileName;
-                    try {
-                        fileName = dump();
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                    ctx.getSender().sendMessage(f.translated("pronouns.command.dump.finish", fileName));
+                    // Dumps can take a while for large stores, so keep them off the calling thread
+                    plugin.executorService().execute(() -> {
+                        final String fileName;
+                        try {
+                            fileName = dump();
+                        } catch (IOException | RuntimeException e) {
+                            platform.logger().error("Failed to dump pronouns", e);
+                            ctx.getSender().sendMessage(f.translated("pronouns.command.dump.failed", String.valueOf(e.getMessage())));
+                            return;
+                        }
+                        ctx.getSender().sendMessage(f.translated("pronouns.command.dump.finish", fileName));
+                    });
                 });
     }
 }
@@ -10,7 +10,13 @@ import net.cufufy.pronouns.common.LegacyMigrator;
 import net.cufufy.pronouns.common.ProNouns;
 import net.cufufy.pronouns.common.message.ProNounsTranslations;
 import net.cufufy.pronouns.common.platform.CommandSender;
+import net.cufufy.pronouns.common.platform.config.Config;
+import net.cufufy.pronouns.common.store.FilePronounStore;
+import net.cufufy.pronouns.common.store.PronounSerializer;
+import net.cufufy.pronouns.common.store.StoreFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +30,10 @@ public class MigrateCommand implements ProNounsCommand {
 
     public enum MigrationSource {
         YML,
+        /**
+         * The file used by the "file" and "journal" stores, for moving to another store.
+         */
+        FILE,
         MYSQL
     }
 
@@ -43,6 +53,17 @@ public class MigrateCommand implements ProNounsCommand {
                 return;
             }
             sets = LegacyMigrator.fromYaml(path);
+        } else if (source == MigrationSource.FILE) {
+            final var path = plugin.platform().dataDir().resolve(StoreFactory.FILE_STORE_NAME);
+            if (!Files.exists(path)) {
+                logger.warn("No " + StoreFactory.FILE_STORE_NAME + " found to migrate.");
+                return;
+            }
+            try {
+                sets = new PronounSerializer(plugin::codec, Config.StorageFormat.TEXT).deserializeAll(FilePronounStore.readFromFile(path));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         } else {
             throw new IllegalStateException("MySQL migration not yet supported");
         }
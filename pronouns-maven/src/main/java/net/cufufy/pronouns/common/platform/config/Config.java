@@ -1,6 +1,11 @@
 package net.cufufy.pronouns.common.platform.config;
 
 import net.cufufy.pronouns.common.UpdateChecker;
+import net.cufufy.pronouns.common.store.StoreBackups;
+import net.cufufy.pronouns.common.store.WriteBehind;
+import net.cufufy.pronouns.common.util.AtomicFiles;
+
+import java.time.Duration;
 
 /**
  * A configuration file.
@@ -34,6 +39,41 @@ public interface Config {
      */
     boolean stats();
 
+    /**
+     * How many distinct pronoun strings to cache parse results for. 0 disables the cache.
+     */
+    int parseCacheSize();
+
+    /**
+     * How stores should write pronouns. Stores can read either format regardless.
+     */
+    StorageFormat storageFormat();
+
+    /**
+     * How often the file store writes its changes out.
+     */
+    WriteBehind.Settings fileSaving();
+
+    /**
+     * Whether file stores and dumps should be GZIP compressed. Compressed and plain files can both be read regardless.
+     */
+    boolean compressFiles();
+
+    /**
+     * How far file stores sync their saves to disk.
+     */
+    AtomicFiles.Durability durability();
+
+    /**
+     * How often to back up the store, and how many backups to keep.
+     */
+    StoreBackups.Settings backups();
+
+    /**
+     * How long logins wait for a player's pronouns to be fetched, for stores that fetch players as they join.
+     */
+    Duration prefetchTimeout();
+
     /**
      * MySQL connection info.
      */
@@ -41,5 +81,20 @@ public interface Config {
 
     void reload();
 
-    record MySqlConnectionInfo(String jdbcUrl, String username, String password) { }
+    /**
+     * @param fetchSize     how many rows to read at a time when reading the whole table
+     * @param schemaVersion the table layout to use, migrating to it if needed
+     */
+    record MySqlConnectionInfo(String jdbcUrl, String username, String password, int fetchSize, int schemaVersion) { }
+
+    enum StorageFormat {
+        /**
+         * Full pronoun sets joined with semicolons, for example "they/them/their/theirs/themselves:p".
+         */
+        TEXT,
+        /**
+         * Compact binary data from a {@link net.cufufy.pronouns.api.PronounCodec}, written as a base64 string.
+         */
+        BINARY
+    }
 }
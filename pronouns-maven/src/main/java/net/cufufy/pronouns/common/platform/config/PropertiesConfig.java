@@ -1,6 +1,11 @@
 package net.cufufy.pronouns.common.platform.config;
 
+import net.cufufy.pronouns.api.PronounParser;
 import net.cufufy.pronouns.common.UpdateChecker.Channel;
+import net.cufufy.pronouns.common.store.MySqlSchema;
+import net.cufufy.pronouns.common.store.StoreBackups;
+import net.cufufy.pronouns.common.store.WriteBehind;
+import net.cufufy.pronouns.common.util.AtomicFiles;
 import net.cufufy.pronouns.common.util.PropertiesUtil;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -8,6 +13,7 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Locale;
 import java.util.Properties;
 
@@ -24,10 +30,19 @@ public class PropertiesConfig implements Config {
     private boolean stats;
 
     private String store;
+    private int parseCacheSize;
+    private StorageFormat storageFormat;
+    private WriteBehind.Settings fileSaving;
+    private boolean compressFiles;
+    private AtomicFiles.Durability durability;
+    private StoreBackups.Settings backups;
+    private Duration prefetchTimeout;
 
     private @Nullable String mysqlUrl;
     private @Nullable String mysqlUsername;
     private @Nullable String mysqlPassword;
+    private int mysqlFetchSize;
+    private int mysqlSchemaVersion;
 
     private String getValue(Properties properties, String key, String defaultValue) {
         final var out = properties.getOrDefault(key, defaultValue);
@@ -35,6 +50,17 @@ public class PropertiesConfig implements Config {
         return (String) out;
     }
 
+    private int getInt(Properties properties, String key, int defaultValue) {
+        final var value = getValue(properties, key, String.valueOf(defaultValue)).trim();
+        try {
+            final int out = Integer.parseInt(value);
+            if (out >= 0) return out;
+        } catch (NumberFormatException ignored) {
+        }
+        logger.warn("Invalid value " + value + " for " + key + ", falling back to " + defaultValue + ".");
+        return defaultValue;
+    }
+
     public PropertiesConfig(Path path, Logger logger) {
         this.path = path;
         this.logger = logger;
@@ -64,11 +90,50 @@ public class PropertiesConfig implements Config {
         this.main = getValue(props, "main", "<reset>");
         this.accent = getValue(props, "accent", "<gradient:#fa9efa:#9dacfa>");
         this.store = getValue(props, "store", null);
+        this.parseCacheSize = getInt(props, "parseCacheSize", PronounParser.DEFAULT_CACHE_CAPACITY);
+        final var formatString = getValue(props, "storageFormat", "text");
+        this.storageFormat = switch (formatString.trim().toLowerCase(Locale.ROOT)) {
+            case "text" -> StorageFormat.TEXT;
+            case "binary" -> StorageFormat.BINARY;
+            default -> {
+                logger.warn("Unknown storage format " + formatString + ", falling back to text.");
+                yield StorageFormat.TEXT;
+            }
+        };
+
+        this.fileSaving = new WriteBehind.Settings(
+                Duration.ofSeconds(getInt(props, "file.saveInterval", 5)),
+                getInt(props, "file.saveThreshold", 100)
+        );
+        this.compressFiles = getValue(props, "file.compress", "false").trim().equals("true");
+        final var durabilityString = getValue(props, "file.durability", "file");
+        this.durability = switch (durabilityString.trim().toLowerCase(Locale.ROOT)) {
+            case "none" -> AtomicFiles.Durability.NONE;
+            case "file" -> AtomicFiles.Durability.FILE;
+            case "directory" -> AtomicFiles.Durability.DIRECTORY;
+            default -> {
+                logger.warn("Unknown durability " + durabilityString + ", falling back to file.");
+                yield AtomicFiles.Durability.FILE;
+            }
+        };
+        this.backups = new StoreBackups.Settings(
+                Duration.ofMinutes(getInt(props, "backup.interval", 0)),
+                getInt(props, "backup.fullEvery", 24),
+                getInt(props, "backup.keep", 7)
+        );
+
+        this.prefetchTimeout = Duration.ofMillis(getInt(props, "prefetchTimeout", 500));
 
         // these have no defaults intentionally - we throw on retrieval as to not throw when not using mysql
         this.mysqlUrl = props.getProperty("mysql.url");
         this.mysqlUsername = props.getProperty("mysql.username");
         this.mysqlPassword = props.getProperty("mysql.password");
+        this.mysqlFetchSize = Math.max(1, getInt(props, "mysql.fetchSize", 1000));
+        this.mysqlSchemaVersion = getInt(props, "mysql.schema", 1);
+        if (mysqlSchemaVersion < 1 || mysqlSchemaVersion > MySqlSchema.LATEST) {
+            logger.warn("Unknown MySQL schema version " + mysqlSchemaVersion + ", falling back to 1.");
+            this.mysqlSchemaVersion = 1;
+        }
 
         return this;
     }
@@ -112,12 +177,47 @@ public class PropertiesConfig implements Config {
         return stats;
     }
 
+    @Override
+    public int parseCacheSize() {
+        return parseCacheSize;
+    }
+
+    @Override
+    public StorageFormat storageFormat() {
+        return storageFormat;
+    }
+
+    @Override
+    public WriteBehind.Settings fileSaving() {
+        return fileSaving;
+    }
+
+    @Override
+    public boolean compressFiles() {
+        return compressFiles;
+    }
+
+    @Override
+    public AtomicFiles.Durability durability() {
+        return durability;
+    }
+
+    @Override
+    public StoreBackups.Settings backups() {
+        return backups;
+    }
+
+    @Override
+    public Duration prefetchTimeout() {
+        return prefetchTimeout;
+    }
+
     @Override
     public MySqlConnectionInfo mysql() {
         if (mysqlUrl == null) throw new InvalidConfigurationException("Missing MySQL URL");
         if (mysqlUsername == null) throw new InvalidConfigurationException("Missing MySQL username");
         if (mysqlPassword == null) throw new InvalidConfigurationException("Missing MySQL password");
 
-        return new MySqlConnectionInfo(mysqlUrl, mysqlUsername, mysqlPassword);
+        return new MySqlConnectionInfo(mysqlUrl, mysqlUsername, mysqlPassword, mysqlFetchSize, mysqlSchemaVersion);
     }
 }
@@ -1,11 +1,11 @@
 package net.cufufy.pronouns.common.store;
 
 import net.cufufy.pronouns.api.PronounStore;
-import net.cufufy.pronouns.api.ProNounsPlugin; // Added
+import net.cufufy.pronouns.api.ProNounsPlugin;
 import net.cufufy.pronouns.api.set.PronounSet;
 import net.cufufy.pronouns.api.supplier.PronounSupplier;
-import net.cufufy.pronouns.api.PronounParser;
-// import net.cufufy.pronouns.common.ProNouns; // No longer needed for field type
+import net.cufufy.pronouns.common.ProNouns;
+import net.cufufy.pronouns.common.util.AtomicFiles;
 import net.cufufy.pronouns.common.util.PropertiesUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -13,48 +13,162 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public class FilePronounStore implements PronounStore {
-    private final ProNounsPlugin plugin; // Changed type
-    private final Path filePath;
-    private final Map<UUID, List<PronounSet>> sets = new HashMap<>();
+/**
+ * A store that keeps every player's pronouns in memory and saves them to a properties file.
+ * <p>
+ * The store is safe to use from any thread. Reads don't lock. Changes are serialized by synchronizing on the store,
+ * so read-modify-write operations such as {@link #addPronouns} can't lose each other's updates. Saves copy the data
+ * under that lock, which is only a few array copies, and write the copy without holding it.
+ * <p>
+ * The file is loaded on a background thread, so creating the store doesn't hold up startup. Players are readable as
+ * soon as their entry has been loaded. Looking up anyone else waits briefly for the load, then reads as unset until it
+ * finishes. Making any change waits for the load to finish. If the load fails, changes are refused, so the file is
+ * never overwritten with partial data.
+ */
+public class FilePronounStore implements PronounStore, AutoCloseable {
+    /**
+     * How long looking up a player who hasn't been loaded yet waits for the load, in milliseconds.
+     */
+    private static final long LOAD_WAIT_MILLIS = 50;
 
-    private static final PronounParser parser = new PronounParser(PronounSet.builtins);
+    private final ProNounsPlugin plugin;
+    private final Path filePath;
+    private final PackedPronounMap sets;
+    private final PronounSerializer serializer;
+    private final WriteBehind writeBehind;
+    private final boolean compress;
+    private final AtomicFiles.Durability durability;
+    private final CompletableFuture<Void> loading;
 
     // Parameter order changed: actualFilePath first, then plugin.
     // filePath parameter now means the exact file, not the directory.
     public FilePronounStore(final Path actualFilePath, final ProNounsPlugin plugin) {
+        this(actualFilePath, plugin, PronounSerializer.TEXT);
+    }
+
+    public FilePronounStore(final Path actualFilePath, final ProNounsPlugin plugin, final PronounSerializer serializer) {
+        this(actualFilePath, plugin, serializer, WriteBehind.Settings.IMMEDIATE);
+    }
+
+    public FilePronounStore(final Path actualFilePath, final ProNounsPlugin plugin, final PronounSerializer serializer, final WriteBehind.Settings saving) {
+        this(actualFilePath, plugin, serializer, saving, false, AtomicFiles.Durability.FILE);
+    }
+
+    /**
+     * @param compress   whether to GZIP the file when saving. Files are read either way.
+     * @param durability how far to sync each save to disk
+     */
+    public FilePronounStore(final Path actualFilePath, final ProNounsPlugin plugin, final PronounSerializer serializer, final WriteBehind.Settings saving,
+                            final boolean compress, final AtomicFiles.Durability durability) {
         this.plugin = plugin;
+        this.serializer = serializer;
+        this.compress = compress;
+        this.durability = durability;
+        this.writeBehind = new WriteBehind(plugin.executorService(), saving, this::save);
         this.filePath = actualFilePath; // Use the provided path directly
+        this.sets = new PackedPronounMap(serializer::codec);
         if (!Files.exists(this.filePath)) {
+            this.loading = CompletableFuture.completedFuture(null);
             save();
             return;
         }
-        Properties properties;
+        this.loading = new CompletableFuture<>();
+        final var loader = new Thread(this::load, "ProNouns store loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
         try {
-            properties = PropertiesUtil.fromFile(this.filePath);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            // Most players share a few pronoun strings, so each is only deserialized once
+            final Map<String, List<PronounSet>> decoded = new HashMap<>();
+            PropertiesUtil.forEach(filePath, (key, value) ->
+                    sets.put(UUID.fromString(key), decoded.computeIfAbsent(value, serializer::deserialize)));
+            loading.complete(null);
+        } catch (IOException | RuntimeException e) {
+            loading.completeExceptionally(e);
+            if (plugin instanceof ProNouns proNouns) {
+                proNouns.platform().logger().error("Failed to load " + filePath.getFileName()
+                        + ". Pronoun changes will be refused until the server restarts, so the file is not overwritten.", e);
+            }
         }
-        properties.forEach((key, value) -> sets.put(UUID.fromString((String) key), parser.parse((String) value)));
     }
 
-    public static void writeToFile(Map<UUID, List<PronounSet>> sets, Path path, String header) throws IOException {
-        final var props = new Properties();
-        sets.forEach(((uuid, pronounSets) -> props.put(uuid.toString(),
-                pronounSets.stream()
-                        .map(PronounSet::toFullString)
-                        .collect(Collectors.joining(";")) // Changed delimiter to semicolon
-        )));
-        try (final var outStream = Files.newOutputStream(path)) {
-            props.store(outStream, header);
+    /**
+     * Waits for the file to finish loading.
+     *
+     * @throws RuntimeException if the file couldn't be loaded. Changes are refused, so the file isn't overwritten.
+     */
+    private void awaitLoad() {
+        if (loading.isDone() && !loading.isCompletedExceptionally()) return;
+        try {
+            loading.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Pronoun store " + filePath.getFileName() + " failed to load", e.getCause());
         }
     }
 
+    /**
+     * Whether the file has finished loading successfully.
+     */
+    public boolean loaded() {
+        return loading.isDone() && !loading.isCompletedExceptionally();
+    }
+
+    /**
+     * Reads the serialized pronouns of every player in a file written by {@link #writeToFile}.
+     */
+    public static Map<UUID, String> readFromFile(Path path) throws IOException {
+        final var properties = PropertiesUtil.fromFile(path);
+        final Map<UUID, String> stored = new HashMap<>(properties.size() * 4 / 3 + 1);
+        properties.forEach((key, value) -> stored.put(UUID.fromString((String) key), (String) value));
+        return stored;
+    }
+
+    public static void writeToFile(Map<UUID, List<PronounSet>> sets, Path path, String header) throws IOException {
+        writeToFile(sets, path, header, PronounSerializer.TEXT);
+    }
+
+    public static void writeToFile(Map<UUID, List<PronounSet>> sets, Path path, String header, PronounSerializer serializer) throws IOException {
+        writeToFile(sets, path, header, serializer, false);
+    }
+
+    public static void writeToFile(Map<UUID, List<PronounSet>> sets, Path path, String header, PronounSerializer serializer, boolean compress) throws IOException {
+        writeToFile(sets, path, header, serializer, compress, AtomicFiles.Durability.FILE);
+    }
+
+    /**
+     * Writes every player's pronouns to a file, one entry at a time. The file is replaced atomically, so a crash
+     * partway through leaves the previous version in place.
+     *
+     * @param compress   whether to GZIP the file. {@link #readFromFile} detects this itself.
+     * @param durability how far to sync the write to disk before returning
+     */
+    public static void writeToFile(Map<UUID, List<PronounSet>> sets, Path path, String header, PronounSerializer serializer,
+                                   boolean compress, AtomicFiles.Durability durability) throws IOException {
+        AtomicFiles.write(path, durability, stream -> {
+            try (final var out = PropertiesUtil.writer(stream, header, compress)) {
+                for (final var entry : sets.entrySet()) {
+                    out.put(entry.getKey().toString(), serializer.serialize(entry.getValue()));
+                }
+            }
+        });
+    }
+
     private void save() {
+        awaitLoad();
+        final Map<UUID, List<PronounSet>> snapshot;
+        synchronized (this) {
+            snapshot = sets.snapshot();
+        }
         try {
-            writeToFile(sets, filePath, "ProNouns storage file. This file should not be edited while the server is running");
+            writeToFile(snapshot, filePath, "ProNouns storage file. This file should not be edited while the server is running", serializer, compress, durability);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -67,29 +181,75 @@ public class FilePronounStore implements PronounStore {
 
     @Override
     public List<PronounSet> sets(UUID player) {
-        return sets.getOrDefault(player, UNSET_LIST);
+        var stored = sets.get(player);
+        if (stored == null && !loading.isDone()) {
+            // Most lookups are for players with no entry at all, so only wait a moment rather than for the whole file
+            try {
+                loading.get(LOAD_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException ignored) {
+                // Still loading, or failed, which was logged when it happened
+            }
+            stored = sets.get(player);
+        }
+        return stored == null ? UNSET_LIST : stored;
+    }
+
+    @Override
+    public synchronized void set(UUID player, @NotNull List<PronounSet> sets) {
+        awaitLoad();
+        if (sets.size() == 0) {
+            if (!this.sets.remove(player)) return;
+        } else {
+            if (sets.equals(this.sets.get(player))) return; // Nothing changed, so there's nothing to save
+            this.sets.put(player, sets);
+        }
+        writeBehind.markDirty();
     }
 
     @Override
-    public void set(UUID player, @NotNull List<PronounSet> sets) {
-        if (sets.size() == 0) this.sets.remove(player);
-        else this.sets.put(player, sets);
-        plugin.executorService().execute(this::save);
+    public synchronized void setAll(Map<UUID, List<PronounSet>> sets) {
+        awaitLoad();
+        boolean changed = false;
+        for (final var entry : sets.entrySet()) {
+            changed |= this.sets.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        if (changed) writeBehind.markDirty();
+    }
+
+    /**
+     * The number of times the file has been saved.
+     */
+    public long saves() {
+        return writeBehind.flushes();
+    }
+
+    /**
+     * The number of changes that were saved along with an earlier one, rather than needing a save of their own.
+     */
+    public long coalescedSaves() {
+        return writeBehind.coalesced();
     }
 
+    /**
+     * Saves any changes that are waiting for the save interval.
+     */
     @Override
-    public void setAll(Map<UUID, List<PronounSet>> sets) {
-        sets.forEach(this.sets::putIfAbsent);
-        plugin.executorService().execute(this::save);
+    public void close() {
+        if (!loaded()) return; // Nothing can have changed yet
+        writeBehind.flush();
     }
 
     @Override
-    public Map<UUID, List<PronounSet>> dump() {
-        return Collections.unmodifiableMap(sets);
+    public synchronized Map<UUID, List<PronounSet>> dump() {
+        awaitLoad();
+        return sets.snapshot();
     }
 
     @Override
-    public void addPronouns(UUID player, @NotNull List<PronounSet> pronounsToAdd) {
+    public synchronized void addPronouns(UUID player, @NotNull List<PronounSet> pronounsToAdd) {
+        awaitLoad(); // Reading an unloaded player as unset would overwrite or ignore their stored pronouns
         if (pronounsToAdd.isEmpty()) {
             return;
         }
@@ -111,7 +271,8 @@ public class FilePronounStore implements PronounStore {
     }
 
     @Override
-    public void removePronouns(UUID player, @NotNull List<PronounSet> pronounsToRemove) {
+    public synchronized void removePronouns(UUID player, @NotNull List<PronounSet> pronounsToRemove) {
+        awaitLoad(); // Reading an unloaded player as unset would overwrite or ignore their stored pronouns
         if (pronounsToRemove.isEmpty()) {
             return;
         }
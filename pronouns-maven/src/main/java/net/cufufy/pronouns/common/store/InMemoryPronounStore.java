@@ -1,5 +1,6 @@
 package net.cufufy.pronouns.common.store;
 
+import net.cufufy.pronouns.api.PronounCodec;
 import net.cufufy.pronouns.api.set.PronounSet;
 import net.cufufy.pronouns.api.PronounStore;
 import net.cufufy.pronouns.api.supplier.PronounSupplier;
@@ -12,7 +13,7 @@ import java.util.*;
  */
 public class InMemoryPronounStore implements PronounStore {
 
-    private final Map<UUID, List<PronounSet>> storage = new HashMap<>();
+    private final PackedPronounMap storage = new PackedPronounMap(() -> PronounCodec.BUILTINS);
     @Override
     public PronounSupplier predefined() {
         return PronounSet.builtins;
@@ -21,7 +22,8 @@ public class InMemoryPronounStore implements PronounStore {
 
     @Override
     public List<PronounSet> sets(UUID player) {
-        return storage.getOrDefault(player, UNSET_LIST);
+        final var stored = storage.get(player);
+        return stored == null ? UNSET_LIST : stored;
     }
 
     @Override
@@ -82,6 +84,6 @@ public class InMemoryPronounStore implements PronounStore {
 
     @Override
     public Map<UUID, List<PronounSet>> dump() {
-        return Collections.unmodifiableMap(storage);
+        return storage.snapshot();
     }
 }
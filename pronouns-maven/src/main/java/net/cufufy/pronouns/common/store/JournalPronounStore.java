@@ -0,0 +1,272 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounStore;
+import net.cufufy.pronouns.api.set.PronounList;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.supplier.PronounSupplier;
+import net.cufufy.pronouns.common.ProNouns;
+import net.cufufy.pronouns.common.util.AtomicFiles;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * A file store that appends each change to a journal instead of rewriting every player's pronouns.
+ * <p>
+ * The store is a snapshot, in the same format as {@link FilePronounStore}, plus a journal of changes made since it was
+ * written. Each journal record holds a player's complete new pronouns, so replaying a record twice is harmless.
+ * Once the journal grows past a threshold, it is compacted: a new snapshot is written and the journal is emptied.
+ * <p>
+ * Records end with a checksum. If the server stops partway through writing one, the damaged tail is dropped when
+ * the journal is next read, and every change before it is kept. Unless the durability is {@code none}, each batch of
+ * records is synced to disk once written, so a crash loses at most the changes still waiting to be written.
+ */
+public class JournalPronounStore implements PronounStore, AutoCloseable {
+    /**
+     * The default journal size, in bytes, after which it is compacted into the snapshot.
+     */
+    public static final long DEFAULT_COMPACT_SIZE = 4L << 20;
+
+    private static final String SNAPSHOT_HEADER = "ProNouns storage snapshot. This file should not be edited while the server is running";
+    // player (16 bytes) + value length (4 bytes) before the value, and a CRC32 after it
+    private static final int RECORD_HEADER = 20;
+    private static final int RECORD_TRAILER = 4;
+
+    private final ProNouns plugin;
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final PronounSerializer serializer;
+    private final long compactSize;
+    private final boolean compress;
+    private final AtomicFiles.Durability durability;
+    private final PackedPronounMap sets;
+    private final FileChannel journal;
+    private final LongAdder compactions = new LongAdder();
+    // Set when a change couldn't be journaled, so the next write is a full snapshot instead. Only used on the executor.
+    private boolean unjournaled;
+
+    /**
+     * @param snapshotPath the snapshot file. The journal is kept next to it, with a {@code .journal} extension.
+     * @param compactSize  the journal size, in bytes, after which it is compacted
+     * @param compress     whether to GZIP the snapshot. Snapshots are read either way.
+     * @param durability   how far to sync each snapshot to disk before emptying the journal, and whether to sync the
+     *                     journal after each write
+     */
+    public JournalPronounStore(final Path snapshotPath, final ProNouns plugin, final PronounSerializer serializer, final long compactSize,
+                               final boolean compress, final AtomicFiles.Durability durability) {
+        this.plugin = plugin;
+        this.snapshotPath = snapshotPath;
+        this.journalPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+        this.serializer = serializer;
+        this.compactSize = compactSize;
+        this.compress = compress;
+        this.durability = durability;
+        try {
+            final var stored = Files.exists(snapshotPath) ? FilePronounStore.readFromFile(snapshotPath) : Map.<UUID, String>of();
+            this.sets = new PackedPronounMap(serializer::codec, stored.size());
+            serializer.deserializeAll(stored).forEach(sets::put);
+            this.journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Applies every intact journal record to the snapshot, then truncates the journal after the last one.
+     */
+    private void replay() throws IOException {
+        final var buffer = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+        final var crc = new CRC32();
+        int records = 0;
+        while (buffer.remaining() >= RECORD_HEADER + RECORD_TRAILER) {
+            final int start = buffer.position();
+            final long msb = buffer.getLong();
+            final long lsb = buffer.getLong();
+            final int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + RECORD_TRAILER) {
+                buffer.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.array(), start, RECORD_HEADER + length);
+            final var value = new String(buffer.array(), start + RECORD_HEADER, length, StandardCharsets.UTF_8);
+            buffer.position(start + RECORD_HEADER + length);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                buffer.position(start);
+                break;
+            }
+            final var player = new UUID(msb, lsb);
+            if (value.isEmpty()) sets.remove(player);
+            else sets.put(player, serializer.deserialize(value));
+            records++;
+        }
+        if (buffer.hasRemaining()) {
+            plugin.platform().logger().warn("Dropping " + buffer.remaining() + " bytes of incomplete changes from the end of " + journalPath.getFileName());
+        }
+        journal.truncate(buffer.position());
+        journal.position(buffer.position());
+        if (records > 0) plugin.platform().logger().info("Replayed " + records + " pronoun changes from " + journalPath.getFileName());
+    }
+
+    /**
+     * Appends a record for each change, then compacts if the journal has grown too large. Runs on the executor.
+     * If the journal can't be written, the changes are still in memory, so they are written with the next snapshot.
+     */
+    private void journal(Map<UUID, List<PronounSet>> changes) {
+        try {
+            if (unjournaled) {
+                compact();
+                return;
+            }
+            for (final var change : changes.entrySet()) {
+                append(change.getKey(), change.getValue());
+            }
+            if (durability != AtomicFiles.Durability.NONE) journal.force(false);
+            if (journal.size() >= compactSize) compact();
+        } catch (IOException | RuntimeException e) {
+            unjournaled = true;
+            plugin.platform().logger().error("Failed to journal " + changes.size() + " pronoun changes. They will be saved with the next snapshot.", e);
+        }
+    }
+
+    private void append(UUID player, List<PronounSet> sets) throws IOException {
+        final byte[] value = sets.isEmpty() ? new byte[0] : serializer.serialize(sets).getBytes(StandardCharsets.UTF_8);
+        final var buffer = ByteBuffer.allocate(RECORD_HEADER + value.length + RECORD_TRAILER);
+        buffer.putLong(player.getMostSignificantBits());
+        buffer.putLong(player.getLeastSignificantBits());
+        buffer.putInt(value.length);
+        buffer.put(value);
+        final var crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) journal.write(buffer);
+    }
+
+    /**
+     * Writes every player's current pronouns to a new snapshot, then empties the journal.
+     * The snapshot replaces the old one atomically, and if the journal isn't emptied, replaying it again is harmless.
+     */
+    private void compact() throws IOException {
+        // Changes made while the snapshot is written are journaled after it, and replaying them again is harmless
+        FilePronounStore.writeToFile(sets.snapshot(), snapshotPath, SNAPSHOT_HEADER, serializer, compress, durability);
+        journal.truncate(0);
+        journal.position(0);
+        unjournaled = false;
+        compactions.increment();
+    }
+
+    /**
+     * The number of times the journal has been compacted.
+     */
+    public long compactions() {
+        return compactions.sum();
+    }
+
+    @Override
+    public PronounSupplier predefined() {
+        return PronounSet.builtins;
+    }
+
+    @Override
+    public List<PronounSet> sets(UUID player) {
+        final var stored = sets.get(player);
+        return stored == null ? UNSET_LIST : stored;
+    }
+
+    /**
+     * Changes are journaled on the executor, which runs tasks in order. Changes are queued while holding the same lock
+     * that changes the map, so the journal always records them in the order they were made.
+     */
+    @Override
+    public synchronized void set(UUID player, @NotNull List<PronounSet> sets) {
+        final var list = PronounList.of(sets);
+        if (list.isEmpty()) {
+            if (!this.sets.remove(player)) return;
+        } else {
+            if (list.equals(this.sets.get(player))) return; // Nothing changed, so there's nothing to record
+            this.sets.put(player, list);
+        }
+        plugin.executorService().execute(() -> journal(Map.of(player, list)));
+    }
+
+    @Override
+    public synchronized void setAll(Map<UUID, List<PronounSet>> sets) {
+        final Map<UUID, List<PronounSet>> added = new HashMap<>();
+        sets.forEach((player, playerSets) -> {
+            final var list = PronounList.of(playerSets);
+            if (this.sets.putIfAbsent(player, list)) added.put(player, list);
+        });
+        if (!added.isEmpty()) plugin.executorService().execute(() -> journal(added));
+    }
+
+    @Override
+    public Map<UUID, List<PronounSet>> dump() {
+        return sets.snapshot();
+    }
+
+    @Override
+    public synchronized void addPronouns(UUID player, @NotNull List<PronounSet> pronounsToAdd) {
+        if (pronounsToAdd.isEmpty()) {
+            return;
+        }
+        final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+        if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+            if (pronounsToAdd.size() == 1 && pronounsToAdd.get(0).equals(PronounSet.Builtins.UNSET)) {
+                return;
+            }
+            currentSets.clear();
+        }
+
+        for (final PronounSet toAdd : pronounsToAdd) {
+            if (!currentSets.contains(toAdd)) {
+                currentSets.add(toAdd);
+            }
+        }
+        set(player, currentSets);
+    }
+
+    @Override
+    public synchronized void removePronouns(UUID player, @NotNull List<PronounSet> pronounsToRemove) {
+        if (pronounsToRemove.isEmpty()) {
+            return;
+        }
+        final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+        if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+            if (pronounsToRemove.contains(PronounSet.Builtins.UNSET)) {
+                set(player, Collections.emptyList());
+            }
+            return;
+        }
+
+        currentSets.removeAll(pronounsToRemove);
+        set(player, currentSets);
+    }
+
+    /**
+     * Compacts the journal and closes it, so the snapshot alone holds every change and can be read by {@link FilePronounStore}.
+     * Changes still queued on the executor should be allowed to finish first.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal.size() > 0 || unjournaled) compact();
+        journal.close();
+    }
+}
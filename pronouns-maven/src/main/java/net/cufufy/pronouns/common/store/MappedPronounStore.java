@@ -0,0 +1,484 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounCodec;
+import net.cufufy.pronouns.api.PronounStore;
+import net.cufufy.pronouns.api.set.PronounList;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.supplier.PronounSupplier;
+import net.cufufy.pronouns.common.ProNouns;
+import net.cufufy.pronouns.common.platform.config.Config;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A store backed by a memory-mapped file, holding an open-addressed hash table of fixed-size records.
+ * <p>
+ * Each record is a player's UUID followed by their pronouns, encoded by a {@link PronounCodec}. Looking a player up is
+ * a hash probe into the mapping, and changes are written to it in place, so nothing is loaded when the store opens.
+ * Pronouns too long to fit in a record, such as several custom sets, are kept in a small overflow file instead.
+ * <p>
+ * Reads are optimistic and don't block; writes take a lock. The mapping is flushed to disk through a
+ * {@link WriteBehind}, and when the table fills up it is rehashed into a larger mapping of the same file.
+ */
+public class MappedPronounStore implements PronounStore, AutoCloseable {
+    private static final int MAGIC = 0x504E4D4D; // "PNMM"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+
+    private static final int RECORD_SIZE = 64;
+    private static final int STATE_OFFSET = 16;
+    private static final int LENGTH_OFFSET = 17;
+    private static final int DATA_OFFSET = 18;
+    private static final int INLINE_SIZE = RECORD_SIZE - DATA_OFFSET;
+
+    private static final byte EMPTY = 0;
+    private static final byte INLINE = 1;
+    private static final byte OVERFLOW = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ProNouns plugin;
+    private final Path path;
+    private final Path overflowPath;
+    private final Path resizePath;
+    private final Supplier<PronounCodec> codec;
+    private final PronounSerializer overflowSerializer;
+    private final FileChannel channel;
+    private final StampedLock lock = new StampedLock();
+    private final Map<UUID, List<PronounSet>> overflow = new ConcurrentHashMap<>();
+    private final AtomicBoolean overflowDirty = new AtomicBoolean();
+    private final WriteBehind writeBehind;
+
+    private volatile Table table;
+    private int size;
+
+    /**
+     * A mapping and its capacity, swapped together when the table grows.
+     */
+    private record Table(MappedByteBuffer buffer, int capacity) {
+        int record(int slot) {
+            return HEADER_SIZE + slot * RECORD_SIZE;
+        }
+    }
+
+    /**
+     * @param path  the table file. The overflow file is kept next to it, with an {@code .overflow} extension.
+     * @param codec supplies the codec to encode with. It must keep every ID it has ever assigned.
+     */
+    public MappedPronounStore(final Path path, final ProNouns plugin, final Supplier<PronounCodec> codec, final WriteBehind.Settings saving) {
+        this.plugin = plugin;
+        this.path = path;
+        this.overflowPath = path.resolveSibling(path.getFileName() + ".overflow");
+        this.resizePath = path.resolveSibling(path.getFileName() + ".resize");
+        this.codec = codec;
+        this.overflowSerializer = new PronounSerializer(codec, Config.StorageFormat.TEXT);
+        this.writeBehind = new WriteBehind(plugin.executorService(), saving, this::flush);
+        try {
+            final boolean exists = Files.exists(path);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (!exists) {
+                final var buffer = map(INITIAL_CAPACITY);
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(CAPACITY_OFFSET, INITIAL_CAPACITY);
+                buffer.putInt(SIZE_OFFSET, 0);
+                this.table = new Table(buffer, INITIAL_CAPACITY);
+            } else {
+                final var header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                if (header.getInt(MAGIC_OFFSET) != MAGIC) throw new IOException(path.getFileName() + " is not a ProNouns store");
+                if (header.getInt(VERSION_OFFSET) != VERSION) throw new IOException("Unknown store version " + header.getInt(VERSION_OFFSET));
+                final int capacity = header.getInt(CAPACITY_OFFSET);
+                this.table = new Table(map(capacity), capacity);
+                this.size = header.getInt(SIZE_OFFSET);
+            }
+            if (Files.exists(resizePath)) recoverResize();
+            if (Files.exists(overflowPath)) {
+                FilePronounStore.readFromFile(overflowPath).forEach((player, value) ->
+                        overflow.put(player, overflowSerializer.deserialize(value)));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private MappedByteBuffer map(int capacity) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    private static int home(long msb, long lsb, int capacity) {
+        return (int) (((msb ^ lsb) * 0x9E3779B97F4A7C15L) >>> 32) & (capacity - 1);
+    }
+
+    /**
+     * Finds a player's slot, or the empty slot where they would go. Probing stops after a full cycle, so an
+     * inconsistent optimistic read can't loop forever.
+     */
+    private static int find(Table table, long msb, long lsb) {
+        final var buffer = table.buffer();
+        final int mask = table.capacity() - 1;
+        int slot = home(msb, lsb, table.capacity());
+        for (int probes = 0; probes < table.capacity(); probes++) {
+            final int record = table.record(slot);
+            if (buffer.get(record + STATE_OFFSET) == EMPTY) return slot;
+            if (buffer.getLong(record) == msb && buffer.getLong(record + 8) == lsb) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public PronounSupplier predefined() {
+        return PronounSet.builtins;
+    }
+
+    @Override
+    public List<PronounSet> sets(UUID player) {
+        final var stored = get(player);
+        return stored == null ? UNSET_LIST : stored;
+    }
+
+    private @Nullable List<PronounSet> get(UUID player) {
+        final long msb = player.getMostSignificantBits();
+        final long lsb = player.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        byte state;
+        byte[] data;
+        try {
+            final var read = read(table, msb, lsb);
+            state = read.state;
+            data = read.data;
+        } catch (RuntimeException e) {
+            // A torn read of a record being moved can index anywhere; validation below catches it
+            state = EMPTY;
+            data = null;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                final var read = read(table, msb, lsb);
+                state = read.state;
+                data = read.data;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return decode(player, new Read(state, data));
+    }
+
+    /**
+     * Reads a player's pronouns while the write lock is held. The lock isn't reentrant, so {@link #get} can't be used.
+     */
+    private @Nullable List<PronounSet> getLocked(UUID player) {
+        return decode(player, read(table, player.getMostSignificantBits(), player.getLeastSignificantBits()));
+    }
+
+    private @Nullable List<PronounSet> decode(UUID player, Read read) {
+        return switch (read.state) {
+            case INLINE -> codec.get().decode(read.data);
+            case OVERFLOW -> overflow.get(player);
+            default -> null;
+        };
+    }
+
+    private record Read(byte state, byte[] data) {
+        static final Read MISSING = new Read(EMPTY, null);
+    }
+
+    private static Read read(Table table, long msb, long lsb) {
+        final int slot = find(table, msb, lsb);
+        if (slot < 0) return Read.MISSING;
+        final var buffer = table.buffer();
+        final int record = table.record(slot);
+        final byte state = buffer.get(record + STATE_OFFSET);
+        if (state != INLINE) return state == EMPTY ? Read.MISSING : new Read(state, null);
+        final byte[] data = new byte[buffer.get(record + LENGTH_OFFSET) & 0xFF];
+        buffer.get(record + DATA_OFFSET, data);
+        return new Read(state, data);
+    }
+
+    /**
+     * Changes are synchronized on the store, so read-modify-write operations such as {@link #addPronouns} can't lose
+     * each other's updates. Readers only wait for the write lock, which is held while the mapping is changed.
+     */
+    @Override
+    public synchronized void set(UUID player, @NotNull List<PronounSet> sets) {
+        final var list = PronounList.of(sets);
+        final long stamp = lock.writeLock();
+        try {
+            final var current = getLocked(player);
+            if (list.isEmpty() ? current == null : list.equals(current)) return; // Nothing changed, so there's nothing to write
+            if (list.isEmpty()) remove(player);
+            else put(player, list);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        writeBehind.markDirty();
+    }
+
+    private void put(UUID player, PronounList sets) throws IOException {
+        final long msb = player.getMostSignificantBits();
+        final long lsb = player.getLeastSignificantBits();
+        final byte[] encoded = codec.get().encode(sets);
+        final byte state = encoded.length <= INLINE_SIZE ? INLINE : OVERFLOW;
+
+        var table = this.table;
+        int slot = find(table, msb, lsb);
+        final boolean isNew = table.buffer().get(table.record(slot) + STATE_OFFSET) == EMPTY;
+        if (isNew && (size + 1) * 10 > table.capacity() * 7) {
+            grow();
+            table = this.table;
+            slot = find(table, msb, lsb);
+        }
+        final var buffer = table.buffer();
+        final int record = table.record(slot);
+        final byte previous = buffer.get(record + STATE_OFFSET);
+        if (state == OVERFLOW) {
+            overflow.put(player, sets);
+            overflowDirty.set(true);
+            buffer.put(record + LENGTH_OFFSET, (byte) 0);
+        } else {
+            if (previous == OVERFLOW && overflow.remove(player) != null) overflowDirty.set(true);
+            buffer.put(record + LENGTH_OFFSET, (byte) encoded.length);
+            buffer.put(record + DATA_OFFSET, encoded);
+        }
+        buffer.putLong(record, msb);
+        buffer.putLong(record + 8, lsb);
+        buffer.put(record + STATE_OFFSET, state);
+        if (isNew) buffer.putInt(SIZE_OFFSET, ++size);
+    }
+
+    private void remove(UUID player) {
+        final var table = this.table;
+        final var buffer = table.buffer();
+        final int mask = table.capacity() - 1;
+        int slot = find(table, player.getMostSignificantBits(), player.getLeastSignificantBits());
+        if (slot < 0 || buffer.get(table.record(slot) + STATE_OFFSET) == EMPTY) return;
+        if (buffer.get(table.record(slot) + STATE_OFFSET) == OVERFLOW && overflow.remove(player) != null) {
+            overflowDirty.set(true);
+        }
+
+        // Shift later records of the probe run back, so lookups never need tombstones
+        final byte[] moved = new byte[RECORD_SIZE];
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            final int record = table.record(next);
+            if (buffer.get(record + STATE_OFFSET) == EMPTY) break;
+            final int home = home(buffer.getLong(record), buffer.getLong(record + 8), table.capacity());
+            // Move the record only if its home isn't cyclically within (slot, next]
+            if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+                buffer.get(record, moved);
+                buffer.put(table.record(slot), moved);
+                slot = next;
+            }
+        }
+        buffer.put(table.record(slot) + STATE_OFFSET, EMPTY);
+        buffer.putInt(SIZE_OFFSET, --size);
+    }
+
+    /**
+     * Doubles the table's capacity, rehashing it in place. The live records are first saved to a separate file, so
+     * a crash partway through can be {@link #recoverResize() recovered} from.
+     */
+    private void grow() throws IOException {
+        final var old = this.table;
+        final byte[] live = liveRecords(old);
+        final var temp = resizePath.resolveSibling(resizePath.getFileName() + ".tmp");
+        try (final var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var data = ByteBuffer.wrap(live);
+            while (data.hasRemaining()) out.write(data);
+            out.force(true);
+        }
+        Files.move(temp, resizePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        rebuild(old.capacity() * 2, live);
+        Files.delete(resizePath);
+    }
+
+    /**
+     * Finishes a resize that was interrupted, by rebuilding the table from the records saved before it started.
+     */
+    private void recoverResize() throws IOException {
+        plugin.platform().logger().warn("Recovering " + path.getFileName() + " from an interrupted resize");
+        final byte[] live = Files.readAllBytes(resizePath);
+        final int entries = live.length / RECORD_SIZE;
+        int capacity = Math.max(INITIAL_CAPACITY, this.table.capacity());
+        while (entries * 10 > capacity * 7) capacity <<= 1;
+        rebuild(capacity, live);
+        Files.delete(resizePath);
+    }
+
+    private static byte[] liveRecords(Table table) {
+        final var buffer = table.buffer();
+        final var out = ByteBuffer.allocate(countLive(table) * RECORD_SIZE);
+        final byte[] record = new byte[RECORD_SIZE];
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (buffer.get(table.record(slot) + STATE_OFFSET) == EMPTY) continue;
+            buffer.get(table.record(slot), record);
+            out.put(record);
+        }
+        return out.array();
+    }
+
+    private static int countLive(Table table) {
+        int live = 0;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.buffer().get(table.record(slot) + STATE_OFFSET) != EMPTY) live++;
+        }
+        return live;
+    }
+
+    private void rebuild(int capacity, byte[] live) throws IOException {
+        final var buffer = map(capacity);
+        final var table = new Table(buffer, capacity);
+        final byte[] zeroes = new byte[RECORD_SIZE];
+        for (int slot = 0; slot < capacity; slot++) {
+            buffer.put(table.record(slot), zeroes);
+        }
+        final var records = ByteBuffer.wrap(live);
+        for (int offset = 0; offset < live.length; offset += RECORD_SIZE) {
+            final int slot = find(table, records.getLong(offset), records.getLong(offset + 8));
+            buffer.put(table.record(slot), live, offset, RECORD_SIZE);
+        }
+        this.size = live.length / RECORD_SIZE;
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(SIZE_OFFSET, size);
+        buffer.force();
+        this.table = table;
+    }
+
+    private void flush() {
+        table.buffer().force();
+        if (overflowDirty.getAndSet(false)) {
+            try {
+                FilePronounStore.writeToFile(overflow, overflowPath, "ProNouns overflow file. This file should not be edited while the server is running", overflowSerializer);
+            } catch (IOException e) {
+                overflowDirty.set(true);
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void setAll(Map<UUID, List<PronounSet>> sets) {
+        boolean changed = false;
+        final long stamp = lock.writeLock();
+        try {
+            for (final var entry : sets.entrySet()) {
+                final var player = entry.getKey();
+                if (entry.getValue().isEmpty() || read(table, player.getMostSignificantBits(), player.getLeastSignificantBits()) != Read.MISSING) continue;
+                put(player, PronounList.of(entry.getValue()));
+                changed = true;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (changed) writeBehind.markDirty();
+    }
+
+    @Override
+    public Map<UUID, List<PronounSet>> dump() {
+        final Map<UUID, List<PronounSet>> out = new HashMap<>();
+        final long stamp = lock.readLock();
+        try {
+            final var table = this.table;
+            final var buffer = table.buffer();
+            for (int slot = 0; slot < table.capacity(); slot++) {
+                final int record = table.record(slot);
+                final byte state = buffer.get(record + STATE_OFFSET);
+                if (state == EMPTY) continue;
+                final var player = new UUID(buffer.getLong(record), buffer.getLong(record + 8));
+                if (state == OVERFLOW) {
+                    out.put(player, overflow.get(player));
+                    continue;
+                }
+                final byte[] data = new byte[buffer.get(record + LENGTH_OFFSET) & 0xFF];
+                buffer.get(record + DATA_OFFSET, data);
+                out.put(player, codec.get().decode(data));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public synchronized void addPronouns(UUID player, @NotNull List<PronounSet> pronounsToAdd) {
+        if (pronounsToAdd.isEmpty()) {
+            return;
+        }
+        final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+        if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+            if (pronounsToAdd.size() == 1 && pronounsToAdd.get(0).equals(PronounSet.Builtins.UNSET)) {
+                return;
+            }
+            currentSets.clear();
+        }
+
+        for (final PronounSet toAdd : pronounsToAdd) {
+            if (!currentSets.contains(toAdd)) {
+                currentSets.add(toAdd);
+            }
+        }
+        set(player, currentSets);
+    }
+
+    @Override
+    public synchronized void removePronouns(UUID player, @NotNull List<PronounSet> pronounsToRemove) {
+        if (pronounsToRemove.isEmpty()) {
+            return;
+        }
+        final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+        if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+            if (pronounsToRemove.contains(PronounSet.Builtins.UNSET)) {
+                set(player, Collections.emptyList());
+            }
+            return;
+        }
+
+        currentSets.removeAll(pronounsToRemove);
+        set(player, currentSets);
+    }
+
+    /**
+     * Flushes the mapping and overflow file, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        writeBehind.flush();
+        channel.close();
+    }
+}
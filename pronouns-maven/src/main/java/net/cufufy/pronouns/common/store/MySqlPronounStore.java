@@ -1,33 +1,78 @@
 package net.cufufy.pronouns.common.store;
 
 import com.zaxxer.hikari.HikariDataSource;
-import net.cufufy.pronouns.api.PronounParser;
+import net.cufufy.pronouns.api.PronounCodec;
+import net.cufufy.pronouns.api.set.PronounList;
 import net.cufufy.pronouns.api.set.PronounSet;
 import net.cufufy.pronouns.api.supplier.PronounSupplier;
 import net.cufufy.pronouns.common.ProNouns;
 import net.cufufy.pronouns.common.platform.config.Config;
+import net.cufufy.pronouns.common.util.ConcurrentUuidMap;
 import net.cufufy.pronouns.common.util.UuidUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.time.Instant;
-import java.util.ArrayList; // Added import
-import java.util.Collections; // Added import
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
-public class MySqlPronounStore implements CachedPronounStore, AutoCloseable {
+public class MySqlPronounStore implements CachedPronounStore, StreamingPronounStore, AutoCloseable {
+    /**
+     * Changes are written in batches, at most this long after they are made.
+     */
+    private static final WriteBehind.Settings FLUSHING = new WriteBehind.Settings(Duration.ofMillis(500), 512);
+    private static final long MAX_RETRY_DELAY_SECONDS = 60;
+    /**
+     * The most players written in one transaction, so a large import doesn't hold one huge transaction open.
+     */
+    private static final int FLUSH_BATCH_SIZE = 1000;
+    /**
+     * How long a missing sequence number is waited for before it's assumed to be from a transaction that rolled back.
+     */
+    private static final long GAP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    /**
+     * The most missing sequence numbers tracked at once. Past this, the oldest are given up on.
+     */
+    private static final int MAX_GAPS = 100_000;
 
     private final HikariDataSource dataSource;
-    private final Map<UUID, List<PronounSet>> cache = new ConcurrentHashMap<>();
+    private final ConcurrentUuidMap<List<PronounSet>> cache = new ConcurrentUuidMap<>();
     private final ProNouns plugin;
-    private static final PronounParser parser = new PronounParser(PronounSet.builtins);
+    private final PronounSerializer serializer;
+    private final int fetchSize;
+    private final MySqlSchema schema;
+    /**
+     * The latest unwritten change for each player. An empty list deletes the player's row.
+     */
+    private final Map<UUID, PronounList> pending = new ConcurrentHashMap<>();
+    private final WriteBehind writeBehind;
+    private int failedFlushes;
+    private boolean retryScheduled;
+    private volatile boolean closed;
 
-    private Instant lastTimestamp = Instant.now();
+    /**
+     * Identifies this server's changes in the change log, so it doesn't apply its own changes twice.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+    private volatile long lastSequence;
+    /**
+     * Sequence numbers below {@link #lastSequence} that haven't been seen yet, with when they were first missed.
+     * Only used by {@link #poll()}.
+     */
+    private final NavigableMap<Long, Long> gaps = new TreeMap<>();
 
     public MySqlPronounStore(final ProNouns plugin, final Config.MySqlConnectionInfo connectionInfo) {
 
@@ -38,6 +83,9 @@ public class MySqlPronounStore implements CachedPronounStore, AutoCloseable {
         }
 
         this.plugin = plugin;
+        // Catalog IDs are assigned per server, so only builtin IDs are safe in a database shared between servers
+        this.serializer = new PronounSerializer(() -> PronounCodec.BUILTINS, plugin.platform().config().storageFormat());
+        this.writeBehind = new WriteBehind(plugin.executorService(), FLUSHING, this::flush);
         dataSource = new HikariDataSource();
         dataSource.setJdbcUrl(connectionInfo.jdbcUrl());
         dataSource.setUsername(connectionInfo.username());
@@ -48,93 +96,214 @@ public class MySqlPronounStore implements CachedPronounStore, AutoCloseable {
         dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         dataSource.addDataSourceProperty("useServerPrepStmts ", "true");
         dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // Lets statements with a fetch size read through a server-side cursor, rather than loading every row at once
+        dataSource.addDataSourceProperty("useCursorFetch", "true");
+        this.fetchSize = connectionInfo.fetchSize();
 
         try (final var con = dataSource.getConnection()) {
+            this.schema = new MySqlSchema(dataSource, connectionInfo.schemaVersion(), serializer, instanceId, plugin.platform().logger());
             con.prepareStatement("""
-                    CREATE TABLE IF NOT EXISTS pronouns (
-                        player BINARY(16) PRIMARY KEY,
-                        pronouns TEXT NOT NULL,
-                        last_updated_from TEXT NOT NULL,
-                        last_updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                    CREATE TABLE IF NOT EXISTS pronouns_changes (
+                        seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        player BINARY(16) NOT NULL,
+                        source VARCHAR(36) NOT NULL,
+                        changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                        INDEX (changed_at)
                     )
                     """).execute();
+            final var sequence = con.prepareStatement("SELECT COALESCE(MAX(seq), 0) FROM pronouns_changes").executeQuery();
+            sequence.next();
+            lastSequence = sequence.getLong(1);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
         plugin.platform().logger().info("Connected to MySQL");
 
         plugin.executorService().scheduleWithFixedDelay(this::poll, 10, 10, TimeUnit.SECONDS);
+        plugin.executorService().scheduleWithFixedDelay(this::pruneChanges, 1, 60, TimeUnit.MINUTES);
     }
 
-    private void push(UUID uuid, List<PronounSet> sets) {
-        try (final var con = dataSource.getConnection()) {
-            if (sets.size() == 0) {
-                final var stmt = con.prepareStatement("DELETE FROM pronouns WHERE player=?");
-                stmt.setBytes(1, UuidUtil.toBytes(uuid));
-                stmt.execute();
-                return;
+    /**
+     * Queues a player's pronouns to be written on the next flush, replacing any write already queued for them.
+     */
+    private void queue(UUID uuid, PronounList sets) {
+        pending.put(uuid, sets);
+        writeBehind.markDirty();
+    }
+
+    /**
+     * Writes every queued change, in transactions of at most {@link #FLUSH_BATCH_SIZE} players. If one fails, its changes
+     * are queued again, unless a newer change for the same player has been queued since, and the flush is retried after
+     * a growing delay.
+     * <p>
+     * The store's lock is held for one transaction at a time rather than the whole flush, so a player joining during a
+     * large flush only waits for the transaction in progress.
+     */
+    private void flush() {
+        while (true) {
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                try {
+                    writeBatch();
+                    failedFlushes = 0;
+                } catch (SQLException e) {
+                    retryLater(e);
+                    return;
+                }
             }
-            final var stmt = con.prepareStatement("REPLACE INTO pronouns (player, pronouns, last_updated_from) VALUES (?, ?, ?)");
-            stmt.setBytes(1, UuidUtil.toBytes(uuid));
-            stmt.setString(2, sets.stream().map(PronounSet::toFullString).collect(java.util.stream.Collectors.joining(";")));
-            stmt.setString(3, "pronouns_plugin_instance"); // Replaced plugin.meta().identifier()
-            stmt.execute();
-        } catch (SQLException e) {
-            plugin.platform().logger().error("Failed to write pronouns to MySQL: " + e.getMessage());
         }
     }
 
-    private void pushAll(Map<UUID, List<PronounSet>> sets) {
+    /**
+     * Logs a failed flush and schedules a retry. Called while holding the store's lock.
+     */
+    private void retryLater(SQLException e) {
+        if (closed) {
+            plugin.platform().logger().error("Failed to write pronoun changes to MySQL: " + e.getMessage());
+            return;
+        }
+        final long delay = Math.min(MAX_RETRY_DELAY_SECONDS, 1L << Math.min(failedFlushes++, 6));
+        plugin.platform().logger().error("Failed to write pronoun changes to MySQL, retrying " + pending.size()
+                + " changes in " + delay + "s: " + e.getMessage());
+        if (retryScheduled) return;
+        try {
+            plugin.executorService().schedule(this::retry, delay, TimeUnit.SECONDS);
+            retryScheduled = true;
+        } catch (RejectedExecutionException shuttingDown) {
+            // close() makes the last attempt
+        }
+    }
+
+    /**
+     * Writes up to {@link #FLUSH_BATCH_SIZE} queued changes in one transaction.
+     */
+    private void writeBatch() throws SQLException {
+        final Map<UUID, PronounList> batch = new HashMap<>();
+        final var players = pending.keySet().iterator();
+        while (players.hasNext() && batch.size() < FLUSH_BATCH_SIZE) {
+            final var player = players.next();
+            final var sets = pending.remove(player);
+            if (sets != null) batch.put(player, sets);
+        }
         try (final var con = dataSource.getConnection()) {
-            final var stmt = con.prepareStatement("REPLACE INTO pronouns (player, pronouns, last_updated_from) VALUES (?, ?, ?)");
-            for (final var entry : sets.entrySet()) {
-                stmt.setBytes(1, UuidUtil.toBytes(entry.getKey()));
-                stmt.setString(2, entry.getValue().stream().map(PronounSet::toFullString).collect(java.util.stream.Collectors.joining(";")));
-                stmt.setString(3, "pronouns_plugin_instance"); // Replaced plugin.meta().identifier()
-                stmt.addBatch();
+            schema.prepare(batch.values());
+            con.setAutoCommit(false);
+            try {
+                final var replace = con.prepareStatement(schema.upsert());
+                final var delete = con.prepareStatement("DELETE FROM " + schema.table() + " WHERE player=?");
+                final var log = con.prepareStatement("INSERT INTO pronouns_changes (player, source) VALUES (?, ?)");
+                boolean replacing = false, deleting = false;
+                for (final var entry : batch.entrySet()) {
+                    log.setBytes(1, UuidUtil.toBytes(entry.getKey()));
+                    log.setString(2, instanceId);
+                    log.addBatch();
+                    if (entry.getValue().isEmpty()) {
+                        delete.setBytes(1, UuidUtil.toBytes(entry.getKey()));
+                        delete.addBatch();
+                        deleting = true;
+                        continue;
+                    }
+                    replace.setBytes(1, UuidUtil.toBytes(entry.getKey()));
+                    schema.setValue(replace, 2, entry.getValue());
+                    replace.setString(3, instanceId);
+                    replace.addBatch();
+                    replacing = true;
+                }
+                if (replacing) replace.executeBatch();
+                if (deleting) delete.executeBatch();
+                log.executeBatch();
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
             }
-            stmt.executeBatch();
         } catch (SQLException e) {
-            plugin.platform().logger().error("Failed to write pronouns to MySQL: " + e.getMessage());
+            batch.forEach(pending::putIfAbsent);
+            throw e;
+        }
+    }
+
+    private void retry() {
+        synchronized (this) {
+            retryScheduled = false;
         }
+        if (!closed) flush();
     }
 
     /**
-     * Polls the database to keep the cache up to date.
-     * Selects all entries where:
-     * <ul>
-     *     <li>a cache entry already exists (i.e. they're on the server)</li>
-     *     <li>it has changed since the last time the server polled</li>
-     *     <li>it was last updated by a different server</li>
-     * </ul>
+     * Polls the change log to keep the cache up to date.
+     * Reads every change since the last one seen that was made by another server, then fetches the current pronouns of
+     * the players among them that are cached (i.e. they're on the server). Both queries are index lookups, so the cost
+     * depends on how many changes there are rather than how many players are stored.
+     * <p>
+     * Sequence numbers are assigned when a change is inserted, but a transaction can commit after a later one, however
+     * many numbers it took. So every number skipped over is remembered as a gap, and polls read back from the oldest
+     * gap until it's filled, or until {@link #GAP_TIMEOUT_MILLIS} has passed and its transaction must have rolled back.
+     * Changes that are already cached are skipped.
      */
     private void poll() {
         try (final var con = dataSource.getConnection()) {
-            if (cache.size() == 0) return;
-            final var stmt = con.prepareStatement(
-                    "SELECT * FROM pronouns WHERE last_updated_at > ? AND last_updated_from != ?"
-            );
-            stmt.setTimestamp(1, Timestamp.from(lastTimestamp));
-            stmt.setString(2, "pronouns_plugin_instance"); // Replaced plugin.meta().identifier()
-            final var results = stmt.executeQuery();
+            schema.heartbeat(con);
+            // This server's own changes are read too, so their numbers don't look like gaps
+            final var changes = con.prepareStatement("SELECT seq, player, source FROM pronouns_changes WHERE seq > ? ORDER BY seq");
+            changes.setLong(1, gaps.isEmpty() ? lastSequence : Math.min(lastSequence, gaps.firstKey() - 1));
+            final var results = changes.executeQuery();
+            final long now = System.currentTimeMillis();
+            long highest = lastSequence;
+            final Set<UUID> changed = new HashSet<>();
             while (results.next()) {
+                final long seq = results.getLong("seq");
+                if (seq > highest) {
+                    for (long missing = Math.max(highest + 1, seq - MAX_GAPS); missing < seq; missing++) gaps.put(missing, now);
+                    highest = seq;
+                } else if (gaps.remove(seq) == null) {
+                    continue; // Already seen
+                }
+                if (instanceId.equals(results.getString("source"))) continue;
                 final var uuid = UuidUtil.fromBytes(results.getBytes("player"));
-                if (!cache.containsKey(uuid)) continue;
-                final var newSets = parser.parse(results.getString("pronouns"));
-                cache.put(uuid, newSets);
+                // A change of our own that hasn't been written yet is newer
+                if (cache.containsKey(uuid) && !pending.containsKey(uuid)) changed.add(uuid);
+            }
+            lastSequence = highest;
+            gaps.values().removeIf(missedAt -> now - missedAt > GAP_TIMEOUT_MILLIS);
+            while (gaps.size() > MAX_GAPS) gaps.pollFirstEntry();
+            if (changed.isEmpty()) return;
+
+            final var current = con.prepareStatement("SELECT player, " + schema.valueColumn() + " FROM " + schema.table() + " WHERE player IN ("
+                    + String.join(", ", Collections.nCopies(changed.size(), "?")) + ")");
+            int i = 1;
+            for (final var uuid : changed) current.setBytes(i++, UuidUtil.toBytes(uuid));
+            final Map<UUID, List<PronounSet>> stored = new HashMap<>();
+            final var rows = current.executeQuery();
+            while (rows.next()) {
+                stored.put(UuidUtil.fromBytes(rows.getBytes("player")), schema.getValue(rows));
+            }
 
-                // this is safe - if the player is not present they won't be in the cache
-                //noinspection OptionalGetWithoutIsPresent
+            for (final var uuid : changed) {
+                final var newSets = stored.getOrDefault(uuid, UNSET_LIST);
+                final var oldSets = cache.get(uuid);
+                if (oldSets == null || oldSets.equals(newSets)) continue;
+                cache.put(uuid, newSets);
                 plugin.platform().logger().info("Player " +
-                        plugin.platform().getPlayer(uuid).get().name() +
+                        plugin.platform().getPlayer(uuid).map(p -> p.name()).orElse(uuid.toString()) +
                         " changed pronouns to " + PronounSet.format(newSets) + " on another server");
             }
-            lastTimestamp = Instant.now();
         } catch (Exception e) {
             plugin.platform().logger().error("Failed to update pronoun cache from MySQL: " + e.getMessage());
         }
     }
 
+    /**
+     * Deletes changes old enough that every server has long since seen them.
+     */
+    private void pruneChanges() {
+        try (final var con = dataSource.getConnection()) {
+            con.prepareStatement("DELETE FROM pronouns_changes WHERE changed_at < NOW() - INTERVAL 1 DAY").execute();
+        } catch (SQLException e) {
+            plugin.platform().logger().error("Failed to prune MySQL change log: " + e.getMessage());
+        }
+    }
+
     @Override
     public void addPronouns(UUID player, @NotNull List<PronounSet> pronounsToAdd) {
         if (pronounsToAdd.isEmpty()) {
@@ -154,15 +323,12 @@ public class MySqlPronounStore implements CachedPronounStore, AutoCloseable {
                 currentSets.add(toAdd);
             }
         }
+        // Make an immutable copy for the cache and the write queue
+        final PronounList setsToPush = PronounList.of(currentSets);
         // Update cache immediately
-        if (currentSets.isEmpty()) {
-            cache.remove(player);
-        } else {
-            cache.put(player, currentSets);
-        }
-        // Asynchronously push to database
-        final List<PronounSet> setsToPush = List.copyOf(currentSets); // Make a copy for the async task
-        plugin.executorService().submit(() -> push(player, setsToPush));
+        cache.put(player, setsToPush.isEmpty() ? UNSET_LIST : setsToPush);
+        // Written to the database on the next flush
+        queue(player, setsToPush);
     }
 
     @Override
@@ -174,23 +340,20 @@ public class MySqlPronounStore implements CachedPronounStore, AutoCloseable {
 
         if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
             if (pronounsToRemove.contains(PronounSet.Builtins.UNSET)) {
-                cache.remove(player);
-                plugin.executorService().submit(() -> push(player, Collections.emptyList()));
+                cache.put(player, UNSET_LIST);
+                queue(player, PronounList.of());
             }
             return;
         }
 
         boolean changed = currentSets.removeAll(pronounsToRemove);
         if (changed) {
+            // Make an immutable copy for the cache and the write queue
+            final PronounList setsToPush = PronounList.of(currentSets);
             // Update cache immediately
-            if (currentSets.isEmpty()) {
-                cache.remove(player);
-            } else {
-                cache.put(player, currentSets);
-            }
-            // Asynchronously push to database
-            final List<PronounSet> setsToPush = List.copyOf(currentSets); // Make a copy for the async task
-            plugin.executorService().submit(() -> push(player, setsToPush));
+            cache.put(player, setsToPush.isEmpty() ? UNSET_LIST : setsToPush);
+            // Written to the database on the next flush
+            queue(player, setsToPush);
         }
     }
 
@@ -206,33 +369,81 @@ public class MySqlPronounStore implements CachedPronounStore, AutoCloseable {
 
     @Override
     public void set(UUID player, @NotNull List<PronounSet> sets) {
-        if (sets.size() == 0) cache.remove(player);
-        else cache.put(player, sets);
-        plugin.executorService().submit(() -> push(player, sets));
+        final PronounList list = PronounList.of(sets);
+        cache.put(player, list.isEmpty() ? UNSET_LIST : list);
+        queue(player, list);
     }
 
+    /**
+     * Queues every player to be written, {@link #FLUSH_BATCH_SIZE} players per transaction.
+     */
     @Override
     public void setAll(Map<UUID, List<PronounSet>> sets) {
-        sets.forEach(cache::putIfAbsent);
-        plugin.executorService().submit(() -> pushAll(sets));
+        sets.forEach((player, playerSets) -> {
+            final var list = PronounList.of(playerSets);
+            // Online players without pronouns are cached as unset, which this replaces
+            if (UNSET_LIST.equals(cache.getOrDefault(player, UNSET_LIST))) cache.put(player, list);
+            pending.put(player, list);
+        });
+        writeBehind.markDirty();
+    }
+
+    /**
+     * Reads the whole table through a cursor, {@link Config.MySqlConnectionInfo#fetchSize() a few rows} at a time.
+     * Changes still waiting to be written are written first.
+     */
+    @Override
+    public void forEachStored(BiConsumer<UUID, List<PronounSet>> action) {
+        flush();
+        try (final var con = dataSource.getConnection()) {
+            final var stmt = con.prepareStatement("SELECT player, " + schema.valueColumn() + " FROM " + schema.table(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            final var results = stmt.executeQuery();
+            while (results.next()) {
+                action.accept(UuidUtil.fromBytes(results.getBytes("player")), schema.getValue(results));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read pronouns from MySQL", e);
+        }
     }
 
+    /**
+     * Reads the whole table into memory. Prefer {@link #forEachStored} for large tables.
+     */
     @Override
     public Map<UUID, List<PronounSet>> dump() {
-        // fixme
-        throw new RuntimeException("L + ratio + get better");
+        final Map<UUID, List<PronounSet>> out = new HashMap<>();
+        forEachStored(out::put);
+        return Collections.unmodifiableMap(out);
     }
 
+    /**
+     * Caches the player's queued change if they have one, since it's newer than their row. Otherwise reads their row
+     * while holding the flush lock, so a flush in progress can't have taken their change off the queue without writing it yet.
+     */
     @Override
     public void onPlayerJoin(UUID uuid) {
-        try (final var con = dataSource.getConnection()) {
-            final var stmt = con.prepareStatement("SELECT pronouns FROM pronouns WHERE player=?");
-            stmt.setBytes(1, UuidUtil.toBytes(uuid));
-            final var resultSet = stmt.executeQuery();
-            if (!resultSet.next()) return;
-            cache.put(uuid, parser.parse(resultSet.getString("pronouns")));
-        } catch (SQLException e) {
-            plugin.platform().logger().error("Failed to fetch pronouns from MySQL: " + e.getMessage());
+        final var queued = pending.get(uuid);
+        if (queued != null) {
+            cache.put(uuid, queued.isEmpty() ? UNSET_LIST : queued);
+            return;
+        }
+        synchronized (this) {
+            final var requeued = pending.get(uuid);
+            if (requeued != null) {
+                cache.put(uuid, requeued.isEmpty() ? UNSET_LIST : requeued);
+                return;
+            }
+            try (final var con = dataSource.getConnection()) {
+                final var stmt = con.prepareStatement("SELECT " + schema.valueColumn() + " FROM " + schema.table() + " WHERE player=?");
+                stmt.setBytes(1, UuidUtil.toBytes(uuid));
+                final var resultSet = stmt.executeQuery();
+                // Players without pronouns are cached too, so changes made to them on other servers are picked up
+                cache.put(uuid, resultSet.next() ? schema.getValue(resultSet) : UNSET_LIST);
+            } catch (SQLException e) {
+                plugin.platform().logger().error("Failed to fetch pronouns from MySQL: " + e.getMessage());
+            }
         }
     }
 
@@ -241,8 +452,24 @@ public class MySqlPronounStore implements CachedPronounStore, AutoCloseable {
         cache.remove(uuid);
     }
 
+    /**
+     * Writes every queued change before closing, stopping at the first transaction that fails.
+     */
     @Override
     public void close() {
-        dataSource.close();
+        closed = true;
+        try {
+            flush();
+            if (!pending.isEmpty()) {
+                plugin.platform().logger().error(pending.size() + " pronoun changes could not be written to MySQL and were lost");
+            }
+        } finally {
+            try (final var con = dataSource.getConnection()) {
+                schema.leave(con);
+            } catch (SQLException e) {
+                plugin.platform().logger().warn("Failed to remove this server from the MySQL server list: " + e.getMessage());
+            }
+            dataSource.close();
+        }
     }
 }
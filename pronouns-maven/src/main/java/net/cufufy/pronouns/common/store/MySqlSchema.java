@@ -0,0 +1,374 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.set.PronounList;
+import net.cufufy.pronouns.api.set.PronounSet;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The layout of the MySQL store's player table, and the migrations between its versions.
+ * <ul>
+ *     <li>Version 1 keeps each player's serialized pronouns as text in the {@code pronouns} table.</li>
+ *     <li>Version 2 keeps each distinct set once, in the {@code pronoun_sets} dictionary, and each player's row in
+ *     {@code player_pronouns} holds just the sets' dictionary IDs as varints - usually a byte or two per set. Rows are
+ *     updated in place rather than deleted and reinserted.</li>
+ * </ul>
+ * Tables are only ever migrated forwards. Once a database has been migrated, every server using it must be on a version
+ * that understands the new layout. Old tables are left in place, so they can be dropped once the migration is trusted.
+ * <p>
+ * A server still writing the old layout would make changes that no longer count, so each server records the version it
+ * uses in {@code pronouns_servers} and keeps that row fresh. Migrating is put off while any other server has recently
+ * recorded an older version. Servers from before this table existed can't be seen, so they must be stopped first.
+ */
+public final class MySqlSchema {
+    public static final int LATEST = 2;
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+    /**
+     * How long after its last heartbeat a server is assumed to have stopped.
+     */
+    private static final int SERVER_TIMEOUT_SECONDS = 120;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(2, MySqlSchema::migrateToDictionary)
+    );
+
+    private final DataSource dataSource;
+    private final PronounSerializer serializer;
+    private final String instanceId;
+    private final int version;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, PronounSet> sets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the tables if they don't exist, then migrates them up to the requested version.
+     * If the database is already on a later version, that version is used instead.
+     *
+     * @param serializer reads and writes version 1 rows
+     * @param instanceId identifies this server in {@code pronouns_servers}
+     */
+    public MySqlSchema(DataSource dataSource, int requested, PronounSerializer serializer, String instanceId, Logger logger) throws SQLException {
+        this.dataSource = dataSource;
+        this.serializer = serializer;
+        this.instanceId = instanceId;
+        try (final var con = dataSource.getConnection()) {
+            con.prepareStatement("""
+                    CREATE TABLE IF NOT EXISTS pronouns (
+                        player BINARY(16) PRIMARY KEY,
+                        pronouns TEXT NOT NULL,
+                        last_updated_from TEXT NOT NULL,
+                        last_updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                    )
+                    """).execute();
+            con.prepareStatement("CREATE TABLE IF NOT EXISTS pronouns_schema (id TINYINT PRIMARY KEY, version INT NOT NULL)").execute();
+            con.prepareStatement("INSERT IGNORE INTO pronouns_schema (id, version) VALUES (0, 1)").execute();
+            con.prepareStatement("""
+                    CREATE TABLE IF NOT EXISTS pronouns_servers (
+                        instance VARCHAR(36) PRIMARY KEY,
+                        schema_version INT NOT NULL,
+                        last_seen TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """).execute();
+
+            // Only one server migrates at a time. The others wait, then see the new version.
+            final var lock = con.prepareStatement("SELECT GET_LOCK('pronouns_schema', ?)");
+            lock.setInt(1, LOCK_TIMEOUT_SECONDS);
+            final var locked = lock.executeQuery();
+            if (!locked.next() || locked.getInt(1) != 1) throw new SQLException("Timed out waiting for another server to migrate the pronouns tables");
+            try {
+                int current = currentVersion(con);
+                for (final var migration : MIGRATIONS) {
+                    if (migration.version() <= current || migration.version() > requested) continue;
+                    final int writers = olderServers(con, migration.version());
+                    if (writers > 0) {
+                        logger.warn("Not migrating MySQL pronouns tables to version " + migration.version() + " yet, "
+                                + writers + " other servers are still using version " + current + ". Set mysql.schema on every server, "
+                                + "stop them all, then start them again.");
+                        break;
+                    }
+                    logger.info("Migrating MySQL pronouns tables to version " + migration.version());
+                    migration.step().migrate(this, con, logger);
+                    final var update = con.prepareStatement("UPDATE pronouns_schema SET version=? WHERE id=0");
+                    update.setInt(1, migration.version());
+                    update.execute();
+                    current = migration.version();
+                }
+                if (current > requested) {
+                    logger.info("MySQL pronouns tables are already on version " + current + ", using it instead of " + requested);
+                }
+                this.version = current;
+                // Recorded before releasing the lock, so a server migrating next sees this one
+                heartbeat(con);
+            } finally {
+                con.prepareStatement("SELECT RELEASE_LOCK('pronouns_schema')").execute();
+            }
+        }
+        if (version >= 2) loadDictionary();
+    }
+
+    /**
+     * Counts the other servers that have recently recorded a version older than the given one.
+     */
+    private int olderServers(Connection con, int version) throws SQLException {
+        final var stmt = con.prepareStatement("SELECT COUNT(*) FROM pronouns_servers "
+                + "WHERE instance != ? AND schema_version < ? AND last_seen > NOW() - INTERVAL ? SECOND");
+        stmt.setString(1, instanceId);
+        stmt.setInt(2, version);
+        stmt.setInt(3, SERVER_TIMEOUT_SECONDS);
+        final var results = stmt.executeQuery();
+        return results.next() ? results.getInt(1) : 0;
+    }
+
+    /**
+     * Records that this server is running and which version it uses. Must be called more often than every
+     * {@value #SERVER_TIMEOUT_SECONDS} seconds, or another server may migrate the tables from under it.
+     */
+    public void heartbeat(Connection con) throws SQLException {
+        final var stmt = con.prepareStatement("INSERT INTO pronouns_servers (instance, schema_version) VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE schema_version=?, last_seen=CURRENT_TIMESTAMP");
+        stmt.setString(1, instanceId);
+        stmt.setInt(2, version);
+        stmt.setInt(3, version);
+        stmt.execute();
+    }
+
+    /**
+     * Removes this server's record, and those of servers that stopped without removing theirs.
+     */
+    public void leave(Connection con) throws SQLException {
+        final var stmt = con.prepareStatement("DELETE FROM pronouns_servers WHERE instance=? OR last_seen < NOW() - INTERVAL 1 DAY");
+        stmt.setString(1, instanceId);
+        stmt.execute();
+    }
+
+    private static int currentVersion(Connection con) throws SQLException {
+        final var results = con.prepareStatement("SELECT version FROM pronouns_schema WHERE id=0").executeQuery();
+        return results.next() ? results.getInt(1) : 1;
+    }
+
+    /**
+     * Copies every player from the version 1 table, in batches by UUID. Players already copied are left alone, so an
+     * interrupted migration can simply be run again.
+     */
+    private static void migrateToDictionary(MySqlSchema schema, Connection con, Logger logger) throws SQLException {
+        con.prepareStatement("""
+                CREATE TABLE IF NOT EXISTS pronoun_sets (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    value_hash BINARY(32) NOT NULL,
+                    value TEXT CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+                    UNIQUE KEY (value_hash)
+                )
+                """).execute();
+        con.prepareStatement("""
+                CREATE TABLE IF NOT EXISTS player_pronouns (
+                    player BINARY(16) PRIMARY KEY,
+                    set_ids BLOB NOT NULL,
+                    last_updated_from VARCHAR(36) NOT NULL,
+                    last_updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                )
+                """).execute();
+
+        final var first = con.prepareStatement("SELECT player, pronouns, last_updated_from FROM pronouns ORDER BY player LIMIT ?");
+        final var next = con.prepareStatement("SELECT player, pronouns, last_updated_from FROM pronouns WHERE player > ? ORDER BY player LIMIT ?");
+        final var insert = con.prepareStatement("INSERT IGNORE INTO player_pronouns (player, set_ids, last_updated_from) VALUES (?, ?, ?)");
+        byte[] last = null;
+        long copied = 0;
+        while (true) {
+            final ResultSet rows;
+            if (last == null) {
+                first.setInt(1, MIGRATION_BATCH_SIZE);
+                rows = first.executeQuery();
+            } else {
+                next.setBytes(1, last);
+                next.setInt(2, MIGRATION_BATCH_SIZE);
+                rows = next.executeQuery();
+            }
+            final List<byte[]> players = new ArrayList<>();
+            final List<List<PronounSet>> values = new ArrayList<>();
+            final List<String> sources = new ArrayList<>();
+            while (rows.next()) {
+                players.add(rows.getBytes("player"));
+                values.add(schema.serializer.deserialize(rows.getString("pronouns")));
+                sources.add(rows.getString("last_updated_from"));
+            }
+            if (players.isEmpty()) break;
+
+            schema.assignIds(values);
+            for (int i = 0; i < players.size(); i++) {
+                insert.setBytes(1, players.get(i));
+                insert.setBytes(2, schema.encode(values.get(i)));
+                insert.setString(3, sources.get(i));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            copied += players.size();
+            last = players.get(players.size() - 1);
+        }
+        logger.info("Copied " + copied + " players to the player_pronouns table. The old pronouns table can be dropped once everything works.");
+    }
+
+    public int version() {
+        return version;
+    }
+
+    /**
+     * The table players' pronouns are kept in.
+     */
+    public String table() {
+        return version >= 2 ? "player_pronouns" : "pronouns";
+    }
+
+    /**
+     * The column of {@link #table()} that holds players' pronouns.
+     */
+    public String valueColumn() {
+        return version >= 2 ? "set_ids" : "pronouns";
+    }
+
+    /**
+     * A statement that inserts or updates a player's row, taking the player, their pronouns and this server's ID.
+     */
+    public String upsert() {
+        return version >= 2
+                ? "INSERT INTO player_pronouns (player, set_ids, last_updated_from) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE set_ids=VALUES(set_ids), last_updated_from=VALUES(last_updated_from)"
+                : "REPLACE INTO pronouns (player, pronouns, last_updated_from) VALUES (?, ?, ?)";
+    }
+
+    /**
+     * Adds any sets the dictionary doesn't have yet. Must be called, outside any transaction, before the sets are
+     * {@link #setValue written}, so their IDs exist even if the transaction writing them is rolled back.
+     */
+    public void prepare(Collection<? extends List<PronounSet>> values) throws SQLException {
+        if (version < 2) return;
+        assignIds(values);
+    }
+
+    public void setValue(PreparedStatement stmt, int index, List<PronounSet> sets) throws SQLException {
+        if (version >= 2) stmt.setBytes(index, encode(sets));
+        else stmt.setString(index, serializer.serialize(sets));
+    }
+
+    public List<PronounSet> getValue(ResultSet results) throws SQLException {
+        if (version >= 2) return decode(results.getBytes(valueColumn()));
+        return serializer.deserialize(results.getString(valueColumn()));
+    }
+
+    private static String key(PronounSet set) {
+        return PronounSerializer.TEXT.serialize(List.of(set));
+    }
+
+    /**
+     * The SHA-256 hash of a dictionary value. Sets can be long, so they're looked up by hash rather than indexed directly.
+     */
+    private static byte[] hash(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void loadDictionary() throws SQLException {
+        try (final var con = dataSource.getConnection()) {
+            final var results = con.prepareStatement("SELECT id, value FROM pronoun_sets").executeQuery();
+            while (results.next()) remember(results.getInt("id"), results.getString("value"));
+        }
+    }
+
+    private void remember(int id, String value) {
+        ids.put(value, id);
+        sets.put(id, PronounSerializer.TEXT.deserialize(value).get(0));
+    }
+
+    private void assignIds(Collection<? extends List<PronounSet>> values) throws SQLException {
+        final Set<String> missing = new HashSet<>();
+        for (final var list : values) {
+            for (final var set : list) {
+                final var key = key(set);
+                if (!ids.containsKey(key)) missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) return;
+        try (final var con = dataSource.getConnection()) {
+            final var insert = con.prepareStatement("INSERT IGNORE INTO pronoun_sets (value_hash, value) VALUES (?, ?)");
+            for (final var value : missing) {
+                insert.setBytes(1, hash(value));
+                insert.setString(2, value);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            final var select = con.prepareStatement("SELECT id, value FROM pronoun_sets WHERE value_hash IN ("
+                    + String.join(", ", Collections.nCopies(missing.size(), "?")) + ")");
+            int i = 1;
+            for (final var value : missing) select.setBytes(i++, hash(value));
+            final var results = select.executeQuery();
+            while (results.next()) remember(results.getInt("id"), results.getString("value"));
+        }
+    }
+
+    private byte[] encode(List<PronounSet> list) {
+        final var out = new ByteArrayOutputStream(list.size() * 2);
+        for (final var set : list) {
+            final var id = ids.get(key(set));
+            if (id == null) throw new IllegalStateException("No dictionary ID for " + set + ", prepare() must be called first");
+            int value = id;
+            while ((value & ~0x7f) != 0) {
+                out.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    private List<PronounSet> decode(byte[] bytes) throws SQLException {
+        final List<Integer> decoded = new ArrayList<>();
+        int value = 0, shift = 0;
+        for (final byte b : bytes) {
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) != 0) {
+                shift += 7;
+                continue;
+            }
+            decoded.add(value);
+            value = 0;
+            shift = 0;
+        }
+        if (!sets.keySet().containsAll(decoded)) {
+            // Added by another server since the dictionary was loaded
+            loadDictionary();
+        }
+        final List<PronounSet> out = new ArrayList<>(decoded.size());
+        for (final var id : decoded) {
+            final var set = sets.get(id);
+            if (set == null) throw new SQLException("Unknown pronoun set ID " + id);
+            out.add(set);
+        }
+        return PronounList.of(out);
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void migrate(MySqlSchema schema, Connection con, Logger logger) throws SQLException;
+    }
+
+    private record Migration(int version, Step step) { }
+}
@@ -0,0 +1,124 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounCodec;
+import net.cufufy.pronouns.api.set.PronounList;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.common.util.ConcurrentUuidMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A compact, thread-safe map of players to their pronouns, for stores that keep every player resident.
+ * <p>
+ * Up to four sets that have a {@link PronounCodec} ID are packed into a single {@code long}, sixteen bits each.
+ * Every player with the same packed value shares one {@link PronounList}, so an entry costs only its slot in a
+ * {@link ConcurrentUuidMap}, and shared lists only format themselves once. Anything else - more sets, or sets without
+ * an ID - is stored as its own list.
+ */
+public final class PackedPronounMap {
+    private static final int LANES = 4;
+    private static final int LANE_BITS = 16;
+    private static final long LANE_MASK = (1L << LANE_BITS) - 1;
+
+    private final Supplier<PronounCodec> codec;
+    private final ConcurrentUuidMap<List<PronounSet>> entries;
+    /**
+     * Shared lists by packed value. There are only as many as there are distinct combinations in use, so this is never pruned.
+     */
+    private final Map<Long, PronounList> packed = new ConcurrentHashMap<>();
+
+    /**
+     * @param codec supplies the codec whose IDs are packed. It may change, but must keep every ID it has ever assigned.
+     */
+    public PackedPronounMap(Supplier<PronounCodec> codec) {
+        this(codec, 16);
+    }
+
+    public PackedPronounMap(Supplier<PronounCodec> codec, int expectedSize) {
+        this.codec = codec;
+        this.entries = new ConcurrentUuidMap<>(expectedSize);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of distinct shared lists in use.
+     */
+    public int packedLists() {
+        return packed.size();
+    }
+
+    /**
+     * Gets a player's sets, or null if they have none.
+     */
+    public @Nullable List<PronounSet> get(UUID player) {
+        return entries.get(player);
+    }
+
+    public boolean containsKey(UUID player) {
+        return entries.containsKey(player);
+    }
+
+    /**
+     * Sets a player's sets. The list must not be empty.
+     */
+    public void put(UUID player, @NotNull List<PronounSet> sets) {
+        entries.put(player, compact(sets));
+    }
+
+    /**
+     * @return whether the sets were added
+     */
+    public boolean putIfAbsent(UUID player, @NotNull List<PronounSet> sets) {
+        return !entries.containsKey(player) && entries.putIfAbsent(player, compact(sets)) == null;
+    }
+
+    /**
+     * @return whether the player had any sets
+     */
+    public boolean remove(UUID player) {
+        return entries.remove(player) != null;
+    }
+
+    public void forEach(BiConsumer<UUID, List<PronounSet>> action) {
+        entries.forEach(action);
+    }
+
+    /**
+     * Copies this map's entries into a read-only map. The lists themselves are immutable, so they are shared.
+     *
+     * @see ConcurrentUuidMap#copy()
+     */
+    public Map<UUID, List<PronounSet>> snapshot() {
+        return entries.copy().asMap();
+    }
+
+    /**
+     * Gets a read-only, weakly consistent view of this map.
+     */
+    public Map<UUID, List<PronounSet>> asMap() {
+        return entries.asMap();
+    }
+
+    private PronounList compact(List<PronounSet> sets) {
+        if (sets.isEmpty()) throw new IllegalArgumentException("Cannot store an empty list of pronouns");
+        if (sets.size() > LANES) return PronounList.of(sets);
+        final var codec = this.codec.get();
+        long value = 0;
+        for (int i = 0; i < sets.size(); i++) {
+            final long id = codec.id(sets.get(i)) + 1L;
+            if (id <= 0 || id > LANE_MASK) return PronounList.of(sets);
+            value |= id << (i * LANE_BITS);
+        }
+        return packed.computeIfAbsent(value, v -> PronounList.of(sets));
+    }
+}
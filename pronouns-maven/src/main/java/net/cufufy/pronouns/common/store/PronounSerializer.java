@@ -0,0 +1,83 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounCodec;
+import net.cufufy.pronouns.api.PronounParser;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.util.BatchUtils;
+import net.cufufy.pronouns.common.platform.config.Config;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Converts pronouns to and from the strings that stores persist.
+ * Either format can always be read, so a store's format can be changed without migrating its data.
+ */
+public class PronounSerializer {
+    private static final PronounParser parser = new PronounParser(PronounSet.builtins, PronounParser.DEFAULT_CACHE_CAPACITY);
+
+    /**
+     * Writes text, and only knows builtin IDs when reading encoded data.
+     */
+    public static final PronounSerializer TEXT = new PronounSerializer(() -> PronounCodec.BUILTINS, Config.StorageFormat.TEXT);
+
+    private final Supplier<PronounCodec> codec;
+    private final Config.StorageFormat format;
+
+    /**
+     * @param codec  supplies the current codec, which may change when the catalog is reloaded
+     * @param format the format to write in
+     */
+    public PronounSerializer(Supplier<PronounCodec> codec, Config.StorageFormat format) {
+        this.codec = codec;
+        this.format = format;
+    }
+
+    /**
+     * The current codec used to read and write encoded data.
+     */
+    public PronounCodec codec() {
+        return codec.get();
+    }
+
+    /**
+     * Serializes sets in this serializer's format. In the binary format, sets that would encode larger than
+     * their text (such as a single inline custom set) are still written as text.
+     */
+    public String serialize(@NotNull List<PronounSet> sets) {
+        final String text = PronounCodec.toText(sets);
+        if (format != Config.StorageFormat.BINARY) return text;
+        final String encoded = codec.get().encodeToString(sets);
+        return encoded.length() < text.length() ? encoded : text;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is encoded and can't be decoded, for example because it refers to a
+     *                                  catalog ID that is no longer in {@code pronouns-catalog-ids.cfg}
+     */
+    public @NotNull List<PronounSet> deserialize(@NotNull String stored) {
+        if (!PronounCodec.isEncoded(stored)) return parser.parse(stored);
+        try {
+            return codec.get().decodeString(stored);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Can't read stored pronouns \"" + stored + "\": " + e.getMessage()
+                    + ". If pronouns-catalog-ids.cfg was edited or deleted, restore it from a backup.", e);
+        }
+    }
+
+    /**
+     * Deserializes many values at once, only reading each distinct value once.
+     *
+     * @return an immutable map of each key to its sets
+     */
+    public <K> Map<K, List<PronounSet>> deserializeAll(Map<K, String> stored) {
+        final var decoded = BatchUtils.mapDistinct(stored.values(), this::deserialize);
+        final Map<K, List<PronounSet>> out = new HashMap<>(stored.size() * 4 / 3 + 1);
+        stored.forEach((key, value) -> out.put(key, decoded.get(value)));
+        return Collections.unmodifiableMap(out);
+    }
+}
@@ -0,0 +1,258 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounStore;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.supplier.PronounSupplier;
+import net.cufufy.pronouns.common.ProNouns;
+import net.cufufy.pronouns.common.util.AtomicFiles;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * A file store that spreads players over 256 shard files, by the first byte of their UUID.
+ * <p>
+ * Each shard has its own lock and saves on its own {@link WriteBehind}, so a change only rewrites the shard it falls
+ * in - about 1/256th of the data. Shards are read in parallel when the store opens. Reads don't lock.
+ * <p>
+ * If the shard directory doesn't exist yet but the single-file store's file does, its data is split into shards. The
+ * shards are written to a temporary directory that is only renamed into place once every shard is saved, so an import
+ * interrupted by a crash is simply started again.
+ */
+public class ShardedFilePronounStore implements PronounStore, AutoCloseable {
+    private static final int SHARD_COUNT = 256;
+    private static final String HEADER = "ProNouns storage shard. This file should not be edited while the server is running";
+
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+
+    /**
+     * @param directory  the directory to keep shard files in
+     * @param singleFile the single-file store's file, to import if the directory doesn't exist yet
+     * @param compress   whether to GZIP shard files when saving. Files are read either way.
+     * @param durability how far to sync each shard save to disk
+     */
+    public ShardedFilePronounStore(final Path directory, final Path singleFile, final ProNouns plugin,
+                                   final PronounSerializer serializer, final WriteBehind.Settings saving, final boolean compress,
+                                   final AtomicFiles.Durability durability) {
+        try {
+            if (!Files.isDirectory(directory) && Files.exists(singleFile)) {
+                final int players = importSingleFile(directory, singleFile, serializer, compress, durability);
+                plugin.platform().logger().info("Split " + players + " players from " + singleFile.getFileName() + " into " + SHARD_COUNT + " shards");
+            }
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        IntStream.range(0, SHARD_COUNT).parallel().forEach(i -> {
+            shards[i] = new Shard(shardPath(directory, i), serializer, plugin, saving, compress, durability);
+            shards[i].load();
+        });
+    }
+
+    private static Path shardPath(Path directory, int shard) {
+        return directory.resolve(String.format("shard-%02x.properties", shard));
+    }
+
+    /**
+     * Writes the single-file store's data as shards in a temporary directory, then renames it to the shard directory.
+     * A temporary directory left by an earlier import that didn't finish is replaced.
+     *
+     * @return the number of players imported
+     */
+    private static int importSingleFile(Path directory, Path singleFile, PronounSerializer serializer, boolean compress,
+                                        AtomicFiles.Durability durability) throws IOException {
+        final var temp = directory.resolveSibling(directory.getFileName() + ".importing");
+        if (Files.exists(temp)) {
+            try (final var files = Files.list(temp)) {
+                for (final var file : (Iterable<Path>) files::iterator) Files.delete(file);
+            }
+        } else {
+            Files.createDirectories(temp);
+        }
+
+        final var stored = serializer.deserializeAll(FilePronounStore.readFromFile(singleFile));
+        final List<Map<UUID, List<PronounSet>>> split = new ArrayList<>(SHARD_COUNT);
+        for (int i = 0; i < SHARD_COUNT; i++) split.add(new HashMap<>());
+        stored.forEach((player, sets) -> split.get(shardIndex(player)).put(player, sets));
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            FilePronounStore.writeToFile(split.get(i), shardPath(temp, i), HEADER, serializer, compress, durability);
+        }
+
+        try {
+            Files.move(temp, directory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, directory);
+        }
+        if (durability == AtomicFiles.Durability.DIRECTORY) AtomicFiles.syncDirectory(directory.toAbsolutePath().getParent());
+        return stored.size();
+    }
+
+    private Shard shard(UUID player) {
+        return shards[shardIndex(player)];
+    }
+
+    private static int shardIndex(UUID player) {
+        return (int) (player.getMostSignificantBits() >>> 56);
+    }
+
+    private static final class Shard {
+        final Path path;
+        final PronounSerializer serializer;
+        final PackedPronounMap sets;
+        final WriteBehind writeBehind;
+        final boolean compress;
+        final AtomicFiles.Durability durability;
+
+        Shard(Path path, PronounSerializer serializer, ProNouns plugin, WriteBehind.Settings saving, boolean compress,
+              AtomicFiles.Durability durability) {
+            this.path = path;
+            this.serializer = serializer;
+            this.compress = compress;
+            this.durability = durability;
+            this.sets = new PackedPronounMap(serializer::codec);
+            this.writeBehind = new WriteBehind(plugin.executorService(), saving, this::save);
+        }
+
+        void load() {
+            if (!Files.exists(path)) return;
+            try {
+                serializer.deserializeAll(FilePronounStore.readFromFile(path)).forEach(sets::put);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void save() {
+            final Map<UUID, List<PronounSet>> snapshot;
+            synchronized (this) {
+                snapshot = sets.snapshot();
+            }
+            try {
+                FilePronounStore.writeToFile(snapshot, path, HEADER, serializer, compress, durability);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Must be called while synchronized on this shard.
+         */
+        void set(UUID player, List<PronounSet> sets) {
+            if (sets.isEmpty()) {
+                if (!this.sets.remove(player)) return;
+            } else {
+                if (sets.equals(this.sets.get(player))) return; // Nothing changed, so there's nothing to save
+                this.sets.put(player, sets);
+            }
+            writeBehind.markDirty();
+        }
+    }
+
+    @Override
+    public PronounSupplier predefined() {
+        return PronounSet.builtins;
+    }
+
+    @Override
+    public List<PronounSet> sets(UUID player) {
+        final var stored = shard(player).sets.get(player);
+        return stored == null ? UNSET_LIST : stored;
+    }
+
+    @Override
+    public void set(UUID player, @NotNull List<PronounSet> sets) {
+        final var shard = shard(player);
+        synchronized (shard) {
+            shard.set(player, sets);
+        }
+    }
+
+    @Override
+    public void setAll(Map<UUID, List<PronounSet>> sets) {
+        sets.forEach((player, playerSets) -> {
+            final var shard = shard(player);
+            synchronized (shard) {
+                if (shard.sets.putIfAbsent(player, playerSets)) shard.writeBehind.markDirty();
+            }
+        });
+    }
+
+    @Override
+    public Map<UUID, List<PronounSet>> dump() {
+        final Map<UUID, List<PronounSet>> out = new HashMap<>();
+        for (final var shard : shards) {
+            synchronized (shard) {
+                out.putAll(shard.sets.snapshot());
+            }
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public void addPronouns(UUID player, @NotNull List<PronounSet> pronounsToAdd) {
+        if (pronounsToAdd.isEmpty()) {
+            return;
+        }
+        final var shard = shard(player);
+        synchronized (shard) {
+            final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+            if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+                if (pronounsToAdd.size() == 1 && pronounsToAdd.get(0).equals(PronounSet.Builtins.UNSET)) {
+                    return;
+                }
+                currentSets.clear();
+            }
+
+            for (final PronounSet toAdd : pronounsToAdd) {
+                if (!currentSets.contains(toAdd)) {
+                    currentSets.add(toAdd);
+                }
+            }
+            shard.set(player, currentSets);
+        }
+    }
+
+    @Override
+    public void removePronouns(UUID player, @NotNull List<PronounSet> pronounsToRemove) {
+        if (pronounsToRemove.isEmpty()) {
+            return;
+        }
+        final var shard = shard(player);
+        synchronized (shard) {
+            final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+            if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+                if (pronounsToRemove.contains(PronounSet.Builtins.UNSET)) {
+                    shard.set(player, Collections.emptyList());
+                }
+                return;
+            }
+
+            currentSets.removeAll(pronounsToRemove);
+            shard.set(player, currentSets);
+        }
+    }
+
+    /**
+     * Saves any shards with changes waiting for the save interval.
+     */
+    @Override
+    public void close() {
+        for (final var shard : shards) {
+            shard.writeBehind.flush();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package net.cufufy.pronouns.common.store;
+
+import com.zaxxer.hikari.HikariDataSource;
+import net.cufufy.pronouns.api.set.PronounList;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.supplier.PronounSupplier;
+import net.cufufy.pronouns.common.util.ConcurrentUuidMap;
+import net.cufufy.pronouns.common.util.UuidUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * A store in an embedded SQLite database, for single servers that want an indexed store without running a database.
+ * <p>
+ * It uses the same table as {@link MySqlPronounStore}. Each change writes only the player's row, and looking a player
+ * up is a primary key lookup. Online players are cached, so reading their pronouns doesn't touch the database.
+ * <p>
+ * The database is in WAL mode, so reads never wait for a write in progress. Commits don't sync to disk, which makes
+ * writes cheap enough to do on the calling thread. A crash can lose the last few changes, but never corrupts the file.
+ */
+public class SqlitePronounStore implements CachedPronounStore, StreamingPronounStore, AutoCloseable {
+
+    private final HikariDataSource dataSource;
+    private final ConcurrentUuidMap<List<PronounSet>> cache = new ConcurrentUuidMap<>();
+    private final PronounSerializer serializer;
+
+    /**
+     * @param path the database file
+     */
+    public SqlitePronounStore(final Path path, final PronounSerializer serializer, final Logger logger) {
+
+        try {
+            // Bundled with Paper
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.serializer = serializer;
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:sqlite:" + path.toAbsolutePath());
+        dataSource.setMaximumPoolSize(4);
+        dataSource.setConnectionInitSql("PRAGMA synchronous=NORMAL");
+
+        try (final var con = dataSource.getConnection()) {
+            // WAL mode is stored in the database file, so this only needs setting once
+            con.createStatement().execute("PRAGMA journal_mode=WAL");
+            con.prepareStatement("""
+                    CREATE TABLE IF NOT EXISTS pronouns (
+                        player BLOB PRIMARY KEY,
+                        pronouns TEXT NOT NULL,
+                        last_updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                    ) WITHOUT ROWID
+                    """).execute();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        logger.info("Opened SQLite database " + path.getFileName());
+    }
+
+    private void push(UUID uuid, List<PronounSet> sets) {
+        try (final var con = dataSource.getConnection()) {
+            if (sets.size() == 0) {
+                final var stmt = con.prepareStatement("DELETE FROM pronouns WHERE player=?");
+                stmt.setBytes(1, UuidUtil.toBytes(uuid));
+                stmt.execute();
+                return;
+            }
+            final var stmt = con.prepareStatement("REPLACE INTO pronouns (player, pronouns) VALUES (?, ?)");
+            stmt.setBytes(1, UuidUtil.toBytes(uuid));
+            stmt.setString(2, serializer.serialize(sets));
+            stmt.execute();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to write pronouns to SQLite", e);
+        }
+    }
+
+    private @Nullable List<PronounSet> fetch(UUID uuid) {
+        try (final var con = dataSource.getConnection()) {
+            final var stmt = con.prepareStatement("SELECT pronouns FROM pronouns WHERE player=?");
+            stmt.setBytes(1, UuidUtil.toBytes(uuid));
+            final var resultSet = stmt.executeQuery();
+            if (!resultSet.next()) return null;
+            return serializer.deserialize(resultSet.getString("pronouns"));
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch pronouns from SQLite", e);
+        }
+    }
+
+    @Override
+    public PronounSupplier predefined() {
+        return PronounSet.builtins;
+    }
+
+    @Override
+    public List<PronounSet> sets(UUID player) {
+        final var cached = cache.get(player);
+        if (cached != null) return cached;
+        final var stored = fetch(player);
+        return stored == null ? UNSET_LIST : stored;
+    }
+
+    @Override
+    public synchronized void set(UUID player, @NotNull List<PronounSet> sets) {
+        final PronounList list = PronounList.of(sets);
+        push(player, list);
+        // Only online players are cached. A player joining now is cached by onPlayerJoin, which waits for this
+        if (cache.containsKey(player)) cache.put(player, list.isEmpty() ? UNSET_LIST : list);
+    }
+
+    @Override
+    public synchronized void setAll(Map<UUID, List<PronounSet>> sets) {
+        try (final var con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            final var stmt = con.prepareStatement("INSERT OR IGNORE INTO pronouns (player, pronouns) VALUES (?, ?)");
+            for (final var entry : sets.entrySet()) {
+                stmt.setBytes(1, UuidUtil.toBytes(entry.getKey()));
+                stmt.setString(2, serializer.serialize(entry.getValue()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            con.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to write pronouns to SQLite", e);
+        }
+        for (final var player : sets.keySet()) {
+            if (!cache.containsKey(player)) continue;
+            final var stored = fetch(player);
+            cache.put(player, stored == null ? UNSET_LIST : stored);
+        }
+    }
+
+    @Override
+    public void forEachStored(BiConsumer<UUID, List<PronounSet>> action) {
+        try (final var con = dataSource.getConnection()) {
+            final var resultSet = con.prepareStatement("SELECT player, pronouns FROM pronouns").executeQuery();
+            while (resultSet.next()) {
+                action.accept(UuidUtil.fromBytes(resultSet.getBytes("player")), serializer.deserialize(resultSet.getString("pronouns")));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read pronouns from SQLite", e);
+        }
+    }
+
+    /**
+     * Reads the whole table into memory. Prefer {@link #forEachStored} for large tables.
+     */
+    @Override
+    public Map<UUID, List<PronounSet>> dump() {
+        final Map<UUID, List<PronounSet>> out = new HashMap<>();
+        forEachStored(out::put);
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public synchronized void addPronouns(UUID player, @NotNull List<PronounSet> pronounsToAdd) {
+        if (pronounsToAdd.isEmpty()) {
+            return;
+        }
+        final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+        if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+            if (pronounsToAdd.size() == 1 && pronounsToAdd.get(0).equals(PronounSet.Builtins.UNSET)) {
+                return;
+            }
+            currentSets.clear();
+        }
+
+        for (final PronounSet toAdd : pronounsToAdd) {
+            if (!currentSets.contains(toAdd)) {
+                currentSets.add(toAdd);
+            }
+        }
+        set(player, currentSets);
+    }
+
+    @Override
+    public synchronized void removePronouns(UUID player, @NotNull List<PronounSet> pronounsToRemove) {
+        if (pronounsToRemove.isEmpty()) {
+            return;
+        }
+        final List<PronounSet> currentSets = new ArrayList<>(sets(player));
+
+        if (currentSets.size() == 1 && currentSets.get(0).equals(PronounSet.Builtins.UNSET)) {
+            if (pronounsToRemove.contains(PronounSet.Builtins.UNSET)) {
+                set(player, Collections.emptyList());
+            }
+            return;
+        }
+
+        currentSets.removeAll(pronounsToRemove);
+        set(player, currentSets);
+    }
+
+    /**
+     * Synchronized with changes, so a change can't be made between reading a player's row and caching it.
+     */
+    @Override
+    public synchronized void onPlayerJoin(UUID uuid) {
+        final var stored = fetch(uuid);
+        cache.put(uuid, stored == null ? UNSET_LIST : stored);
+    }
+
+    @Override
+    public synchronized void onPlayerLeave(UUID uuid) {
+        cache.remove(uuid);
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,235 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounStore;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.common.util.AtomicFiles;
+import net.cufufy.pronouns.common.util.PropertiesUtil;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Periodically backs up a store, writing a full backup every so often and only what changed in between.
+ * <p>
+ * Each backup starts from a copy of {@link PronounStore#dump()}, which for the file stores is a snapshot that writers
+ * never wait for. The previous copy is kept in memory, so a delta is found by comparing the two without reading
+ * anything back from disk. If nothing changed, nothing is written.
+ * <p>
+ * Database stores ({@link StreamingPronounStore}s) would have to be read into memory in full to find a delta, so they
+ * only get full backups, streamed straight from the database to the file. Stores that can't be dumped at all, such as
+ * player data, aren't backed up.
+ * <p>
+ * Backups run on their own thread, so a slow one never holds up saves. They are written atomically, and are
+ * properties files in the same format as {@code /pronouns dump}, named so they sort by time. A delta holds the players
+ * whose pronouns changed since the backup before it, with an empty value for players who were cleared. To restore,
+ * load the newest {@code full-} file, then apply each later {@code delta-} file in order.
+ */
+public class StoreBackups {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final String FULL_PREFIX = "full-";
+    private static final String DELTA_PREFIX = "delta-";
+
+    private final PronounStore store;
+    private final Path directory;
+    private final Settings settings;
+    private final boolean compress;
+    private final AtomicFiles.Durability durability;
+    private final Logger logger;
+
+    private @Nullable ScheduledExecutorService executor;
+    private @Nullable Map<UUID, List<PronounSet>> previous;
+    private int sinceFull;
+    private LocalDateTime lastTime = LocalDateTime.MIN;
+
+    /**
+     * @param directory  the directory to keep backups in
+     * @param compress   whether to GZIP backups
+     * @param durability how far to sync each backup to disk
+     */
+    public StoreBackups(PronounStore store, Path directory, Settings settings, boolean compress, AtomicFiles.Durability durability, Logger logger) {
+        this.store = store;
+        this.directory = directory;
+        this.settings = settings;
+        this.compress = compress;
+        this.durability = durability;
+        this.logger = logger;
+    }
+
+    /**
+     * Starts backing up at the configured interval, on a thread of its own. Does nothing if backups are disabled.
+     */
+    public synchronized void start() {
+        if (!settings.enabled() || executor != null) return;
+        final var executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final var thread = new Thread(r, "ProNouns backups");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = settings.interval().toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                backup();
+            } catch (UnsupportedOperationException e) {
+                logger.warn("Disabling backups, as the pronoun store can't be backed up: " + e.getMessage());
+                executor.shutdown();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to back up pronoun store", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        this.executor = executor;
+    }
+
+    /**
+     * Stops backing up, letting a backup in progress finish first.
+     */
+    public void stop() {
+        final ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) logger.warn("Timed out waiting for a pronoun store backup to finish.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a backup now, full or delta as due, then deletes backups past the retention limit.
+     *
+     * @return the file written, or null if nothing had changed
+     * @throws UnsupportedOperationException if the store can't be dumped
+     */
+    public synchronized @Nullable Path backup() throws IOException {
+        if (store instanceof StreamingPronounStore streaming) {
+            Files.createDirectories(directory);
+            final var written = newFile(FULL_PREFIX);
+            writeStreamed(streaming, written);
+            prune();
+            return written;
+        }
+
+        // Copied, as some stores' dumps are views that would change along with the store
+        final var current = Map.copyOf(store.dump());
+        Files.createDirectories(directory);
+
+        final Path written;
+        if (previous == null || sinceFull + 1 >= settings.fullEvery()) {
+            written = newFile(FULL_PREFIX);
+            FilePronounStore.writeToFile(current, written, "ProNouns full backup", PronounSerializer.TEXT, compress, durability);
+            sinceFull = 0;
+        } else {
+            written = writeDelta(previous, current, DELTA_PREFIX);
+            if (written == null) return null;
+            sinceFull++;
+        }
+        previous = current;
+        prune();
+        return written;
+    }
+
+    /**
+     * Picks a name for a new backup. Names are unique, even for backups made within the same millisecond.
+     */
+    private Path newFile(String prefix) {
+        var time = LocalDateTime.now();
+        if (!time.isAfter(lastTime)) time = lastTime.plusNanos(1_000_000);
+        lastTime = time;
+        return directory.resolve(prefix + TIMESTAMP.format(time) + (compress ? ".properties.gz" : ".properties"));
+    }
+
+    private void writeStreamed(StreamingPronounStore store, Path path) throws IOException {
+        AtomicFiles.write(path, durability, stream -> {
+            try (final var out = PropertiesUtil.writer(stream, "ProNouns full backup", compress)) {
+                store.forEachStored((player, sets) -> {
+                    try {
+                        out.put(player.toString(), PronounSerializer.TEXT.serialize(sets));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private @Nullable Path writeDelta(Map<UUID, List<PronounSet>> before, Map<UUID, List<PronounSet>> after, String prefix) throws IOException {
+        final boolean changed = before.size() != after.size()
+                || after.entrySet().stream().anyMatch(e -> !Objects.equals(before.get(e.getKey()), e.getValue()));
+        if (!changed) return null;
+        final var path = newFile(prefix);
+        AtomicFiles.write(path, durability, stream -> {
+            try (final var out = PropertiesUtil.writer(stream, "ProNouns backup delta. Empty values are cleared players", compress)) {
+                for (final var entry : after.entrySet()) {
+                    if (!Objects.equals(before.get(entry.getKey()), entry.getValue())) {
+                        out.put(entry.getKey().toString(), PronounSerializer.TEXT.serialize(entry.getValue()));
+                    }
+                }
+                for (final var player : before.keySet()) {
+                    if (!after.containsKey(player)) out.put(player.toString(), "");
+                }
+            }
+        });
+        return path;
+    }
+
+    /**
+     * Deletes the oldest full backups past the limit, along with every delta older than the oldest full backup kept.
+     */
+    private void prune() throws IOException {
+        final List<Path> fulls = list(FULL_PREFIX);
+        if (fulls.size() <= settings.keep()) return;
+        final var oldestKept = fulls.get(fulls.size() - settings.keep()).getFileName().toString().substring(FULL_PREFIX.length());
+        for (final var full : fulls.subList(0, fulls.size() - settings.keep())) {
+            Files.deleteIfExists(full);
+        }
+        for (final var delta : list(DELTA_PREFIX)) {
+            if (delta.getFileName().toString().substring(DELTA_PREFIX.length()).compareTo(oldestKept) < 0) {
+                Files.deleteIfExists(delta);
+            }
+        }
+    }
+
+    private List<Path> list(String prefix) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .sorted().toList();
+        }
+    }
+
+    /**
+     * @param interval  how often to back up. Zero disables backups.
+     * @param fullEvery write a full backup once every this many backups, and deltas for the rest
+     * @param keep      how many full backups to keep, each with the deltas after it
+     */
+    public record Settings(Duration interval, int fullEvery, int keep) {
+        public Settings {
+            fullEvery = Math.max(1, fullEvery);
+            keep = Math.max(1, keep);
+        }
+
+        public boolean enabled() {
+            return !interval.isZero() && !interval.isNegative();
+        }
+    }
+}
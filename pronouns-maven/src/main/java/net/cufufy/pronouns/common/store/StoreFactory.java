@@ -3,14 +3,29 @@ package net.cufufy.pronouns.common.store;
 import net.cufufy.pronouns.api.PronounStore;
 import net.cufufy.pronouns.common.ProNouns;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 public class StoreFactory {
-    private final Map<String, Supplier<PronounStore>> suppliers = new HashMap<>();
+    /**
+     * The file used by the "file" and "journal" stores, in the data directory.
+     */
+    public static final String FILE_STORE_NAME = "pronouns-store.properties";
+
+    private final Map<String, Function<ProNouns, PronounStore>> suppliers = new HashMap<>();
 
     public void register(String key, Supplier<PronounStore> supplier) {
+        register(key, plugin -> supplier.get());
+    }
+
+    /**
+     * Registers a store type whose stores are built from the plugin, for example to read its config or codec.
+     */
+    public void register(String key, Function<ProNouns, PronounStore> supplier) {
         if (suppliers.putIfAbsent(key, supplier) != null) {
             throw new IllegalStateException("Store supplier with key " + key + " already registered");
         }
@@ -20,13 +35,46 @@ public class StoreFactory {
         return switch (key) {
             case "in_memory" -> new InMemoryPronounStore();
             // Updated to pass the fully resolved path as the first argument
-            case "file" -> new FilePronounStore(plugin.platform().dataDir().resolve("pronouns-store.properties"), plugin);
+            case "file" -> new FilePronounStore(plugin.platform().dataDir().resolve(FILE_STORE_NAME), plugin,
+                    new PronounSerializer(plugin::codec, plugin.platform().config().storageFormat()),
+                    plugin.platform().config().fileSaving(), plugin.platform().config().compressFiles(),
+                    plugin.platform().config().durability());
+            case "journal" -> new JournalPronounStore(plugin.platform().dataDir().resolve(FILE_STORE_NAME), plugin,
+                    new PronounSerializer(plugin::codec, plugin.platform().config().storageFormat()),
+                    JournalPronounStore.DEFAULT_COMPACT_SIZE, plugin.platform().config().compressFiles(),
+                    plugin.platform().config().durability());
+            case "sharded" -> new ShardedFilePronounStore(plugin.platform().dataDir().resolve("pronouns-store"),
+                    plugin.platform().dataDir().resolve(FILE_STORE_NAME), plugin,
+                    new PronounSerializer(plugin::codec, plugin.platform().config().storageFormat()),
+                    plugin.platform().config().fileSaving(), plugin.platform().config().compressFiles(),
+                    plugin.platform().config().durability());
+            case "mmap" -> {
+                final var path = plugin.platform().dataDir().resolve("pronouns-store.mmap");
+                warnIfNotMigrated(plugin, path);
+                yield new MappedPronounStore(path, plugin, plugin::codec, plugin.platform().config().fileSaving());
+            }
+            case "sqlite" -> {
+                final var path = plugin.platform().dataDir().resolve("pronouns-store.db");
+                warnIfNotMigrated(plugin, path);
+                yield new SqlitePronounStore(path, new PronounSerializer(plugin::codec, plugin.platform().config().storageFormat()),
+                        plugin.platform().logger());
+            }
             case "mysql" -> new MySqlPronounStore(plugin, plugin.platform().config().mysql());
             default -> {
                 final var supplier = suppliers.get(key);
                 if (supplier == null) throw new IllegalStateException("Unknown pronoun store type " + key);
-                yield supplier.get();
+                yield supplier.apply(plugin);
             }
         };
     }
+
+    /**
+     * Warns when a store is about to create its file while the file store still holds data, as nothing is copied over
+     * automatically.
+     */
+    private static void warnIfNotMigrated(ProNouns plugin, Path path) {
+        if (Files.exists(path) || !Files.exists(plugin.platform().dataDir().resolve(FILE_STORE_NAME))) return;
+        plugin.platform().logger().warn("Creating a new, empty " + path.getFileName() + ". Pronouns in " + FILE_STORE_NAME
+                + " are not copied into it automatically. Run /pronouns migrate file to copy them.");
+    }
 }
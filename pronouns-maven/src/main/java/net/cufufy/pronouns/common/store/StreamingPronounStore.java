@@ -0,0 +1,20 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounStore;
+import net.cufufy.pronouns.api.set.PronounSet;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * A pronoun store that can hand out every player's pronouns one at a time, for stores too large to {@link #dump()} into memory.
+ */
+public interface StreamingPronounStore extends PronounStore {
+    /**
+     * Passes every stored player's pronouns to an action, as they are read.
+     * This method may block for a long time, so it should not be called on the main thread.
+     * @param action the action to run for each player
+     */
+    void forEachStored(BiConsumer<UUID, List<PronounSet>> action);
+}
@@ -0,0 +1,112 @@
+package net.cufufy.pronouns.common.store;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces many changes into few flushes.
+ * <p>
+ * Each {@link #markDirty() change} schedules a flush after the interval, unless one is already scheduled.
+ * If enough changes build up before then, a flush is run right away instead. Either way, one flush covers every
+ * change made before it started, so a burst of changes only costs one write.
+ */
+public class WriteBehind {
+    private final ScheduledExecutorService executor;
+    private final Runnable flush;
+    private final long intervalMillis;
+    private final int threshold;
+
+    private final AtomicInteger dirty = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean immediate = new AtomicBoolean();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param executor the executor to flush on
+     * @param settings when to flush. A zero interval flushes as soon as the executor gets to it.
+     * @param flush    writes out every change made so far
+     */
+    public WriteBehind(ScheduledExecutorService executor, Settings settings, Runnable flush) {
+        this.executor = executor;
+        this.flush = flush;
+        this.intervalMillis = settings.interval().toMillis();
+        this.threshold = Math.max(1, settings.threshold());
+    }
+
+    /**
+     * Records a change that needs flushing.
+     * Once the executor has shut down, the change is only recorded, and is written by the next {@link #flush()}.
+     */
+    public void markDirty() {
+        final int pending = dirty.incrementAndGet();
+        try {
+            if (intervalMillis <= 0 || pending >= threshold) {
+                if (immediate.compareAndSet(false, true)) executor.execute(this::flushImmediate);
+            } else if (scheduled.compareAndSet(false, true)) {
+                executor.schedule(this::flushScheduled, intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Shutting down. The store flushes when it is closed.
+            immediate.set(false);
+            scheduled.set(false);
+        }
+    }
+
+    private void flushImmediate() {
+        immediate.set(false);
+        flush();
+    }
+
+    private void flushScheduled() {
+        scheduled.set(false);
+        flush();
+    }
+
+    /**
+     * Flushes now if there are any unflushed changes. Called on shutdown, and safe to call from any thread.
+     */
+    public synchronized void flush() {
+        final int pending = dirty.getAndSet(0);
+        if (pending == 0) return;
+        try {
+            flush.run();
+        } catch (RuntimeException e) {
+            // Keep the changes pending so the next flush retries them
+            dirty.addAndGet(pending);
+            throw e;
+        }
+        flushes.increment();
+        coalesced.add(pending - 1);
+    }
+
+    /**
+     * The number of flushes that have been written.
+     */
+    public long flushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * The number of changes that were written by a flush for an earlier change, instead of needing their own.
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @param interval  how long to wait after a change before flushing it
+     * @param threshold how many unflushed changes cause a flush before the interval is up
+     */
+    public record Settings(Duration interval, int threshold) {
+        /**
+         * Flushes as soon as possible, still coalescing changes made while a flush is waiting to run.
+         */
+        public static final Settings IMMEDIATE = new Settings(Duration.ZERO, 1);
+    }
+}
@@ -0,0 +1,190 @@
+package net.cufufy.pronouns.common.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Replaces files without ever leaving them half-written.
+ * <p>
+ * Data is written to a temporary file next to the target, which is then moved over it in one step. If the server stops
+ * partway through, the old file is still there, whole. How hard to try to get the data onto the disk before moving on
+ * is set by a {@link Durability}.
+ * <p>
+ * The new file keeps the old one's permissions. Temporary files left behind by a crash are deleted the first time each
+ * file is written.
+ */
+public final class AtomicFiles {
+    private static final LongAdder writes = new LongAdder();
+    private static final LongAdder writeNanos = new LongAdder();
+    private static final LongAdder syncNanos = new LongAdder();
+    private static final Set<Path> cleaned = ConcurrentHashMap.newKeySet();
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Writes a file's new contents.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        /**
+         * @param out the file's contents. Closing it only flushes, so it is safe to wrap in a stream that closes it.
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Replaces a file with new contents.
+     */
+    public static void write(Path target, Durability durability, Writer writer) throws IOException {
+        final long start = System.nanoTime();
+        long syncTime = 0;
+        final var directory = target.toAbsolutePath().getParent();
+        if (cleaned.add(target.toAbsolutePath())) deleteStaleTemps(target);
+        final var temp = createTemp(target);
+        try {
+            try (final var channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer.write(new FilterOutputStream(Channels.newOutputStream(channel)) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                });
+                if (durability != Durability.NONE) {
+                    final long syncStart = System.nanoTime();
+                    channel.force(true);
+                    syncTime += System.nanoTime() - syncStart;
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (durability == Durability.DIRECTORY) {
+                final long syncStart = System.nanoTime();
+                syncDirectory(directory);
+                syncTime += System.nanoTime() - syncStart;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        writes.increment();
+        writeNanos.add(System.nanoTime() - start);
+        syncNanos.add(syncTime);
+    }
+
+    /**
+     * Creates an empty temporary file next to the target, with the target's permissions if it exists, or the defaults
+     * for new files otherwise. Unlike {@link Files#createTempFile}, which makes files only their owner can read.
+     */
+    private static Path createTemp(Path target) throws IOException {
+        final var directory = target.toAbsolutePath().getParent();
+        while (true) {
+            final var temp = directory.resolve(target.getFileName() + "." + ThreadLocalRandom.current().nextLong(Long.MAX_VALUE) + ".tmp");
+            try {
+                Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            try {
+                if (Files.exists(target)) Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            } catch (UnsupportedOperationException ignored) {
+                // Not a POSIX file system, such as on Windows, where new files already get their directory's permissions
+            }
+            return temp;
+        }
+    }
+
+    /**
+     * Deletes a file's temporary files left behind by a crash. Only files older than this process are deleted, so a
+     * write in progress is never disturbed.
+     */
+    private static void deleteStaleTemps(Path target) throws IOException {
+        final var directory = target.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) return;
+        final var pattern = Pattern.compile(Pattern.quote(target.getFileName().toString()) + "\\.?\\d+\\.tmp");
+        final long started = ManagementFactory.getRuntimeMXBean().getStartTime();
+        try (final Stream<Path> files = Files.list(directory)) {
+            for (final var file : (Iterable<Path>) files::iterator) {
+                if (!pattern.matcher(file.getFileName().toString()).matches()) continue;
+                if (Files.getLastModifiedTime(file).toMillis() < started) Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Syncs a directory's entries to disk, so files moved into it survive a crash. Does nothing where directories
+     * can't be opened.
+     */
+    public static void syncDirectory(Path directory) {
+        try (final var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Some platforms, such as Windows, can't open directories. The file itself has still been synced.
+        }
+    }
+
+    /**
+     * Gets the number and total duration of every write so far.
+     */
+    public static Stats stats() {
+        return new Stats(writes.sum(), writeNanos.sum(), syncNanos.sum());
+    }
+
+    /**
+     * @param writes     the number of files written
+     * @param writeNanos the total time spent writing them, syncs included
+     * @param syncNanos  the total time spent waiting for syncs
+     */
+    public record Stats(long writes, long writeNanos, long syncNanos) {
+        public double averageWriteMillis() {
+            return writes == 0 ? 0 : writeNanos / 1e6 / writes;
+        }
+
+        public double averageSyncMillis() {
+            return writes == 0 ? 0 : syncNanos / 1e6 / writes;
+        }
+    }
+
+    /**
+     * How sure to be that a write has reached the disk before it counts as done.
+     * Each level is slower than the one before it.
+     */
+    public enum Durability {
+        /**
+         * Leaves flushing to the operating system. The file is never half-written, but a power cut soon after a write
+         * can undo it.
+         */
+        NONE,
+        /**
+         * Syncs the file's contents to disk before moving it into place.
+         */
+        FILE,
+        /**
+         * Also syncs the directory after the move, so the move itself can't be undone by a power cut.
+         */
+        DIRECTORY
+    }
+}
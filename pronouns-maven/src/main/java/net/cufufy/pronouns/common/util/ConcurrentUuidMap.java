@@ -0,0 +1,350 @@
+package net.cufufy.pronouns.common.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * A concurrent map keyed by UUIDs, stored as their two {@code long} halves in open-addressed arrays.
+ * <p>
+ * Unlike a {@link java.util.concurrent.ConcurrentHashMap}, entries cost no key object or node, only two longs and a
+ * reference. Reads never lock. Writes lock one of a fixed number of stripes, chosen by the key's hash.
+ * <p>
+ * Each stripe's slots are claimed by a single key for the life of its table: removing an entry leaves a tombstone that
+ * only that key can reuse, and tables are rebuilt and swapped in whole when they fill up. A reader therefore never sees
+ * a key paired with another key's value. Null values are not permitted.
+ *
+ * @param <V> the value type
+ */
+public final class ConcurrentUuidMap<V> {
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object TOMBSTONE = new Object();
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public ConcurrentUuidMap() {
+        this(16);
+    }
+
+    public ConcurrentUuidMap(int expectedSize) {
+        final int perStripe = Math.max(1, expectedSize / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    private static long hash(long msb, long lsb) {
+        return (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+    }
+
+    private Stripe stripe(long hash) {
+        // The top bits pick the stripe, and the bits below them the slot, so the two stay independent
+        return stripes[(int) (hash >>> 60)];
+    }
+
+    public @Nullable V get(UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long msb, long lsb) {
+        final long hash = hash(msb, lsb);
+        final Object value = stripe(hash).table.get(msb, lsb, hash);
+        return value == null || value == TOMBSTONE ? null : (V) value;
+    }
+
+    public V getOrDefault(UUID key, V defaultValue) {
+        final V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(UUID key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value, or null if there was none
+     */
+    public @Nullable V put(UUID key, @NotNull V value) {
+        return write(key, value, false);
+    }
+
+    /**
+     * @return the current value if there was one, or null if the given value was added
+     */
+    public @Nullable V putIfAbsent(UUID key, @NotNull V value) {
+        return write(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable V write(UUID key, V value, boolean onlyIfAbsent) {
+        if (value == null) throw new NullPointerException("Null values are not permitted");
+        final long msb = key.getMostSignificantBits();
+        final long lsb = key.getLeastSignificantBits();
+        final long hash = hash(msb, lsb);
+        final var stripe = stripe(hash);
+        synchronized (stripe) {
+            final Object previous = stripe.put(msb, lsb, hash, value, onlyIfAbsent);
+            return previous == TOMBSTONE ? null : (V) previous;
+        }
+    }
+
+    /**
+     * @return the removed value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(UUID key) {
+        final long msb = key.getMostSignificantBits();
+        final long lsb = key.getLeastSignificantBits();
+        final long hash = hash(msb, lsb);
+        final var stripe = stripe(hash);
+        synchronized (stripe) {
+            final Object previous = stripe.remove(msb, lsb, hash);
+            return previous == TOMBSTONE ? null : (V) previous;
+        }
+    }
+
+    public void clear() {
+        for (final var stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * The number of entries. Under concurrent writes this is only an estimate.
+     */
+    public int size() {
+        int size = 0;
+        for (final var stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    /**
+     * Calls an action for every entry. Like iterating a {@link java.util.concurrent.ConcurrentHashMap}, this doesn't
+     * lock, and may or may not see writes made while it runs.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super UUID, ? super V> action) {
+        for (final var stripe : stripes) {
+            final var table = stripe.table;
+            for (int slot = 0; slot < table.values.length; slot++) {
+                final Object value = VALUES.getAcquire(table.values, slot);
+                if (value == null || value == TOMBSTONE) continue;
+                action.accept(new UUID(table.msbs[slot], table.lsbs[slot]), (V) value);
+            }
+        }
+    }
+
+    /**
+     * Copies this map. Each stripe is copied under its lock by cloning its arrays, so this is much cheaper than
+     * iterating the entries. The copy is only consistent across stripes if nothing writes to the map meanwhile,
+     * so callers that need that should hold a lock of their own around both their writes and this call.
+     */
+    public ConcurrentUuidMap<V> copy() {
+        final var copy = new ConcurrentUuidMap<V>(0);
+        for (int i = 0; i < STRIPES; i++) {
+            final var stripe = stripes[i];
+            synchronized (stripe) {
+                copy.stripes[i].table = stripe.table.copy();
+                copy.stripes[i].size = stripe.size;
+                copy.stripes[i].used = stripe.used;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Gets a read-only, weakly consistent view of this map.
+     */
+    public Map<UUID, V> asMap() {
+        return new MapView();
+    }
+
+    private static final class Table {
+        final long[] msbs;
+        final long[] lsbs;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this(new long[capacity], new long[capacity], new Object[capacity]);
+        }
+
+        private Table(long[] msbs, long[] lsbs, Object[] values) {
+            this.msbs = msbs;
+            this.lsbs = lsbs;
+            this.values = values;
+            this.mask = values.length - 1;
+        }
+
+        Table copy() {
+            return new Table(msbs.clone(), lsbs.clone(), values.clone());
+        }
+
+        int home(long hash) {
+            return (int) (hash >>> 28) & mask;
+        }
+
+        /**
+         * Finds the slot claimed by a key, or the empty slot that ends its probe run. Only for use under the stripe's lock.
+         */
+        int find(long msb, long lsb, long hash) {
+            int slot = home(hash);
+            while (values[slot] != null) {
+                if (msbs[slot] == msb && lsbs[slot] == lsb) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Gets the value in a key's slot, which may be a tombstone, or null if the key has no slot.
+         */
+        Object get(long msb, long lsb, long hash) {
+            int slot = home(hash);
+            Object value;
+            // A value is published after its key, so seeing it non-null makes the key visible too
+            while ((value = VALUES.getAcquire(values, slot)) != null) {
+                if (msbs[slot] == msb && lsbs[slot] == lsb) return value;
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+    }
+
+    private static final class Stripe {
+        volatile Table table;
+        /**
+         * Live entries, written only under the stripe's lock.
+         */
+        volatile int size;
+        /**
+         * Claimed slots, including tombstones.
+         */
+        int used;
+
+        Stripe(int expectedSize) {
+            this.table = new Table(capacityFor(expectedSize));
+        }
+
+        private static int capacityFor(int entries) {
+            int capacity = 8;
+            while (capacity * 2 < entries * 3) capacity <<= 1;
+            return capacity;
+        }
+
+        Object put(long msb, long lsb, long hash, Object value, boolean onlyIfAbsent) {
+            var table = this.table;
+            int slot = table.find(msb, lsb, hash);
+            final Object previous = table.values[slot];
+            if (previous != null) {
+                if (previous == TOMBSTONE) size++;
+                else if (onlyIfAbsent) return previous;
+                VALUES.setRelease(table.values, slot, value);
+                return previous;
+            }
+            if ((used + 1) * 3 > table.values.length * 2) {
+                table = rebuild();
+                slot = table.find(msb, lsb, hash);
+            }
+            table.msbs[slot] = msb;
+            table.lsbs[slot] = lsb;
+            VALUES.setRelease(table.values, slot, value);
+            used++;
+            size++;
+            return null;
+        }
+
+        Object remove(long msb, long lsb, long hash) {
+            final var table = this.table;
+            final int slot = table.find(msb, lsb, hash);
+            final Object previous = table.values[slot];
+            if (previous == null || previous == TOMBSTONE) return null;
+            VALUES.setRelease(table.values, slot, TOMBSTONE);
+            size--;
+            return previous;
+        }
+
+        void clear() {
+            table = new Table(capacityFor(0));
+            used = 0;
+            size = 0;
+        }
+
+        /**
+         * Copies live entries into a new table, dropping tombstones and growing if needed, then publishes it.
+         */
+        private Table rebuild() {
+            final var old = this.table;
+            final var table = new Table(capacityFor(Math.max(size + 1, old.values.length / 2)));
+            for (int i = 0; i < old.values.length; i++) {
+                final Object value = old.values[i];
+                if (value == null || value == TOMBSTONE) continue;
+                int slot = table.home(hash(old.msbs[i], old.lsbs[i]));
+                while (table.values[slot] != null) slot = (slot + 1) & table.mask;
+                table.msbs[slot] = old.msbs[i];
+                table.lsbs[slot] = old.lsbs[i];
+                table.values[slot] = value;
+            }
+            used = size;
+            this.table = table;
+            return table;
+        }
+    }
+
+    private final class MapView extends AbstractMap<UUID, V> {
+        @Override
+        public int size() {
+            return ConcurrentUuidMap.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof UUID uuid && ConcurrentUuidMap.this.containsKey(uuid);
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof UUID uuid ? ConcurrentUuidMap.this.get(uuid) : null;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super UUID, ? super V> action) {
+            ConcurrentUuidMap.this.forEach(action);
+        }
+
+        @Override
+        public @NotNull Set<Entry<UUID, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return ConcurrentUuidMap.this.size();
+                }
+
+                @Override
+                public @NotNull Iterator<Entry<UUID, V>> iterator() {
+                    final List<Entry<UUID, V>> entries = new ArrayList<>();
+                    ConcurrentUuidMap.this.forEach((key, value) -> entries.add(Map.entry(key, value)));
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+            };
+        }
+    }
+}
@@ -1,19 +1,165 @@
 package net.cufufy.pronouns.common.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Date;
 import java.util.Properties;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class PropertiesUtil {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private PropertiesUtil() {
     }
 
+    /**
+     * Reads a properties file, decompressing it first if it was written with {@link #writer(Path, String, boolean) compression}.
+     */
     public static Properties fromFile(Path path) throws IOException {
         final var properties = new Properties();
-        try (final var inStream = Files.newInputStream(path)) {
+        try (final var inStream = open(path)) {
             properties.load(inStream);
         }
         return properties;
     }
+
+    /**
+     * Reads a properties file like {@link #fromFile(Path)}, but passes each entry to an action as it is read instead of
+     * collecting them, so large files never need to be held in memory.
+     */
+    public static void forEach(Path path, BiConsumer<String, String> action) throws IOException {
+        // Properties.load hands each entry to put as soon as it's parsed
+        final var properties = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                action.accept((String) key, (String) value);
+                return null;
+            }
+        };
+        try (final var inStream = open(path)) {
+            properties.load(inStream);
+        }
+    }
+
+    /**
+     * Opens a file for reading, decompressing it if it starts with the GZIP header.
+     */
+    public static InputStream open(Path path) throws IOException {
+        final var in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        in.mark(2);
+        final int first = in.read();
+        final int second = in.read();
+        in.reset();
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        return in;
+    }
+
+    /**
+     * Starts writing a properties file one entry at a time, so large files never need to be held in memory.
+     * The output can be read by {@link #fromFile(Path)} and, if uncompressed, by {@link Properties#load(InputStream)}.
+     *
+     * @param comments a comment to write at the top of the file, or null for none
+     * @param compress whether to GZIP the file
+     */
+    public static PropertiesWriter writer(Path path, String comments, boolean compress) throws IOException {
+        return writer(Files.newOutputStream(path), comments, compress);
+    }
+
+    /**
+     * Starts writing properties to a stream, which is closed when the writer is.
+     *
+     * @see #writer(Path, String, boolean)
+     */
+    public static PropertiesWriter writer(OutputStream out, String comments, boolean compress) throws IOException {
+        try {
+            if (compress) out = new GZIPOutputStream(out, BUFFER_SIZE);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        return new PropertiesWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1), BUFFER_SIZE), comments);
+    }
+
+    /**
+     * Writes properties in the same format as {@link Properties#store(OutputStream, String)}.
+     */
+    public static final class PropertiesWriter implements AutoCloseable {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder();
+
+        private PropertiesWriter(Writer out, String comments) throws IOException {
+            this.out = out;
+            try {
+                if (comments != null) comment(comments);
+                comment(new Date().toString());
+            } catch (IOException e) {
+                out.close();
+                throw e;
+            }
+        }
+
+        private void comment(String comment) throws IOException {
+            for (final var commentLine : comment.split("\r\n|\r|\n")) {
+                line.setLength(0);
+                line.append('#');
+                for (int i = 0; i < commentLine.length(); i++) {
+                    appendAscii(commentLine.charAt(i));
+                }
+                out.write(line.toString());
+                out.write('\n');
+            }
+        }
+
+        public void put(String key, String value) throws IOException {
+            line.setLength(0);
+            escape(key, true);
+            line.append('=');
+            escape(value, false);
+            line.append('\n');
+            out.write(line.toString());
+        }
+
+        private void escape(String s, boolean key) {
+            for (int i = 0; i < s.length(); i++) {
+                final char c = s.charAt(i);
+                switch (c) {
+                    case ' ' -> {
+                        if (i == 0 || key) line.append('\\');
+                        line.append(' ');
+                    }
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    case '\f' -> line.append("\\f");
+                    case '\\', '=', ':', '#', '!' -> line.append('\\').append(c);
+                    default -> appendAscii(c);
+                }
+            }
+        }
+
+        private void appendAscii(char c) {
+            if (c < 0x20 || c > 0x7e) {
+                line.append(String.format("\\u%04X", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
 }
@@ -3,7 +3,8 @@ package net.cufufy.pronouns.paper;
 import net.cufufy.pronouns.api.set.PronounSet;
 import net.cufufy.pronouns.api.PronounStore;
 import net.cufufy.pronouns.api.supplier.PronounSupplier;
-import net.cufufy.pronouns.api.PronounParser;
+import net.cufufy.pronouns.common.ProNouns;
+import net.cufufy.pronouns.common.store.PronounSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
@@ -13,12 +14,15 @@ import org.jetbrains.annotations.NotNull;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 public class PersistentDataContainerStore implements PronounStore {
     private static final NamespacedKey KEY = new NamespacedKey("pronouns", "pronouns");
 
-    private static final PronounParser parser = new PronounParser(PronounSet.builtins);
+    private final PronounSerializer serializer;
+
+    public PersistentDataContainerStore(ProNouns plugin) {
+        this.serializer = new PronounSerializer(plugin::codec, plugin.platform().config().storageFormat());
+    }
 
 
     @Override
@@ -36,19 +40,14 @@ public class PersistentDataContainerStore implements PronounStore {
     public List<PronounSet> sets(UUID player) {
         final var key = getPlayer(player).getPersistentDataContainer().get(KEY, PersistentDataType.STRING);
         if (key == null) return UNSET_LIST;
-        return parser.parse(key);
+        return serializer.deserialize(key);
     }
 
     @Override
     public void set(UUID player, @NotNull List<PronounSet> sets) {
         final var pdc = getPlayer(player).getPersistentDataContainer();
         if (sets.size() == 0) pdc.remove(KEY);
-        else pdc.set(KEY,
-                PersistentDataType.STRING,
-                sets.stream()
-                        // Use PronounParser's toString method for correct serialization, including ; delimiter
-                        .map(PronounSet::toFullString) // Keep toFullString for individual sets
-                        .collect(Collectors.joining(";"))); // Change delimiter to ;
+        else pdc.set(KEY, PersistentDataType.STRING, serializer.serialize(sets));
     }
 
     // TODO: Consider if addPronouns should ensure uniqueness or rely on the final `set` operation with parsing.
@@ -2,30 +2,133 @@ package net.cufufy.pronouns.paper;
 
 import net.cufufy.pronouns.common.store.CachedPronounStore;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 public class PlayerEventHandler implements Listener {
+    /**
+     * How long a prefetch is kept for a player who never joins, for example because their connection dropped, in ticks.
+     */
+    private static final long PREFETCH_EXPIRY_TICKS = 60 * 20;
 
     private final ProNounsPaper plugin;
+    /**
+     * Fetches that haven't been released yet, by player. While a player has one, they aren't evicted from the cache, so
+     * an earlier session leaving can't evict what it fetches. Each fetch is released once it has finished and its
+     * player has joined, been turned away, or never arrived.
+     */
+    private final Map<UUID, CompletableFuture<Void>> fetches = new ConcurrentHashMap<>();
+    /**
+     * Players who have joined, updated on the main thread so async tasks can check it safely.
+     */
+    private final Map<UUID, Player> online = new ConcurrentHashMap<>();
 
     public PlayerEventHandler(ProNounsPaper plugin) {
         this.plugin = plugin;
     }
 
+    /**
+     * Fetches a player's pronouns while they're logging in, so they're ready before the player is in the world.
+     * Login waits for the fetch up to the configured timeout. If it takes longer, the player joins anyway, and their
+     * pronouns are cached once the fetch finishes.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        if (!(plugin.getPlugin().store() instanceof CachedPronounStore cached)) return;
+        final var uuid = e.getUniqueId();
+        final var fetch = fetch(cached, uuid);
+        // Released on join too, so this only matters if the player never arrives
+        Bukkit.getScheduler().runTaskLater(plugin, () -> fetch.thenRun(() -> release(uuid, fetch)), PREFETCH_EXPIRY_TICKS);
+
+        final var timeout = plugin.getPlugin().platform().config().prefetchTimeout();
+        try {
+            fetch.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            plugin.getPlugin().platform().logger().debug("Pronouns for " + e.getName() + " weren't fetched within " + timeout.toMillis() + "ms, letting them join anyway");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+            // Never completed exceptionally
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent e) {
+        // Another plugin can still turn the player away after pre-login
+        if (e.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+        final var uuid = e.getPlayer().getUniqueId();
+        final var fetch = fetches.get(uuid);
+        if (fetch != null) fetch.thenRun(() -> release(uuid, fetch));
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent e) {
-        if (plugin.getPlugin().store() instanceof CachedPronounStore cached) {
-            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> cached.onPlayerJoin(e.getPlayer().getUniqueId()));
-        }
+        if (!(plugin.getPlugin().store() instanceof CachedPronounStore cached)) return;
+        final var uuid = e.getPlayer().getUniqueId();
+        // Marked online before the fetch can be released, so an eviction always sees one or the other
+        online.put(uuid, e.getPlayer());
+        final var prefetched = fetches.get(uuid);
+        final var fetch = prefetched != null ? prefetched : fetch(cached, uuid);
+        fetch.thenRun(() -> release(uuid, fetch));
     }
 
     @EventHandler
     public void onPlayerJoin(PlayerQuitEvent e) {
-        if (plugin.getPlugin().store() instanceof CachedPronounStore cached) {
-            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> cached.onPlayerLeave(e.getPlayer().getUniqueId()));
-        }
+        final var uuid = e.getPlayer().getUniqueId();
+        // Only this session's entry, in case the player has already logged in again
+        online.remove(uuid, e.getPlayer());
+        evict(uuid);
+    }
+
+    /**
+     * Fetches a player's pronouns on an async task.
+     */
+    private CompletableFuture<Void> fetch(CachedPronounStore cached, UUID uuid) {
+        final var fetch = new CompletableFuture<Void>();
+        // Recorded before fetching, so an earlier session leaving now doesn't evict what this fetches
+        fetches.put(uuid, fetch);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                cached.onPlayerJoin(uuid);
+            } finally {
+                fetch.complete(null);
+            }
+        });
+        return fetch;
+    }
+
+    /**
+     * Releases a finished fetch, then evicts its player if they aren't online, so a fetch for a player who has
+     * already gone doesn't leave them cached.
+     */
+    private void release(UUID uuid, CompletableFuture<Void> fetch) {
+        if (fetches.remove(uuid, fetch)) evict(uuid);
+    }
+
+    /**
+     * Drops a player from the cache, unless they're online or being fetched again.
+     */
+    private void evict(UUID uuid) {
+        if (!(plugin.getPlugin().store() instanceof CachedPronounStore cached)) return;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> fetches.compute(uuid, (key, fetch) -> {
+            // Holding the entry's lock, so a new fetch can't start between the check and the eviction
+            if (fetch == null && !online.containsKey(uuid)) cached.onPlayerLeave(uuid);
+            return fetch;
+        }));
     }
 }
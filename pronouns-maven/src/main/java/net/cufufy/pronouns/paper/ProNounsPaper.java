@@ -56,6 +56,11 @@ public final class ProNounsPaper extends JavaPlugin {
         }
     }
 
+    @Override
+    public void onDisable() {
+        if (plugin != null) plugin.shutdown();
+    }
+
     public ProNouns getPlugin() {
         return plugin;
     }
@@ -0,0 +1,91 @@
+package net.cufufy.pronouns.api;
+
+import net.cufufy.pronouns.api.set.PronounSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static net.cufufy.pronouns.api.set.PronounSet.Builtins.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PronounCodecTest {
+    private static final PronounSet XE = PronounSet.from("xe", "xem", "xyr", "xyrs", "xemself");
+    private static final PronounSet FAE = PronounSet.from("fae", "faer", "faer", "faers", "faerself", true);
+
+    @Test
+    void encodesBuiltinsAsSingleIds() {
+        for (final var set : List.of(UNSET, THEY, HE, SHE, IT, ANY, ASK)) {
+            final byte[] encoded = PronounCodec.BUILTINS.encode(List.of(set));
+            assertEquals(3, encoded.length, set::toString);
+            assertEquals(List.of(set), PronounCodec.BUILTINS.decode(encoded));
+        }
+    }
+
+    @Test
+    void roundTripsInlineSets() {
+        final var sets = List.of(HE, FAE, PronounSet.from("é", "ü", "ø", "ß", "ñself"));
+        final var decoded = PronounCodec.BUILTINS.decode(PronounCodec.BUILTINS.encode(sets));
+        assertEquals(sets, decoded);
+        assertTrue(decoded.get(1).plural());
+    }
+
+    @Test
+    void roundTripsEmptyLists() {
+        assertEquals(List.of(), PronounCodec.BUILTINS.decode(PronounCodec.BUILTINS.encode(List.of())));
+    }
+
+    @Test
+    void encodesCatalogSetsByTheirIds() {
+        final var codec = new PronounCodec(Map.of(PronounCodec.FIRST_CUSTOM_ID, XE));
+        final byte[] encoded = codec.encode(List.of(XE));
+        assertEquals(3, encoded.length);
+        assertEquals(List.of(XE), codec.decode(encoded));
+        assertEquals(PronounCodec.FIRST_CUSTOM_ID, codec.id(XE));
+        assertEquals(XE, codec.set(PronounCodec.FIRST_CUSTOM_ID));
+    }
+
+    @Test
+    void rejectsUnknownIds() {
+        final byte[] encoded = new PronounCodec(Map.of(PronounCodec.FIRST_CUSTOM_ID, XE)).encode(List.of(XE));
+        assertThrows(IllegalArgumentException.class, () -> PronounCodec.BUILTINS.decode(encoded));
+    }
+
+    @Test
+    void rejectsReservedIds() {
+        assertThrows(IllegalArgumentException.class, () -> new PronounCodec(Map.of(1, XE)));
+    }
+
+    @Test
+    void rejectsMalformedData() {
+        final byte[] encoded = PronounCodec.BUILTINS.encode(List.of(FAE));
+        assertThrows(IllegalArgumentException.class, () -> PronounCodec.BUILTINS.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> PronounCodec.BUILTINS.decode(new byte[]{99, 0}));
+    }
+
+    @Test
+    void rejectsCountsLargerThanTheData() {
+        final byte[] he = PronounCodec.BUILTINS.encode(List.of(HE));
+        // A count of about a billion sets, followed by just one. Sizing a set for the count would run out of memory.
+        final byte[] corrupt = {he[0], (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x03, he[2]};
+        assertThrows(IllegalArgumentException.class, () -> PronounCodec.BUILTINS.decode(corrupt));
+    }
+
+    @Test
+    void roundTripsStrings() {
+        final var sets = List.of(SHE, XE);
+        final var encoded = PronounCodec.BUILTINS.encodeToString(sets);
+        assertTrue(PronounCodec.isEncoded(encoded));
+        assertFalse(PronounCodec.isEncoded(PronounCodec.toText(sets)));
+        assertEquals(sets, PronounCodec.BUILTINS.decodeString(encoded));
+    }
+
+    @Test
+    void decodesLikeTheParser() {
+        final var text = "they/them;xe/xem/xyr/xyrs/xemself;fae/faer/faer/faers/faerself:p";
+        final var parsed = new PronounParser(PronounSet.builtins).parse(text);
+        assertEquals(parsed, PronounCodec.BUILTINS.decode(PronounCodec.BUILTINS.encode(parsed)));
+        assertEquals(parsed, new PronounParser(PronounSet.builtins).parse(PronounCodec.toText(parsed)));
+    }
+}
@@ -0,0 +1,93 @@
+package net.cufufy.pronouns.api;
+
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.api.supplier.FixedSupplier;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static net.cufufy.pronouns.api.set.PronounSet.Builtins.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PronounParserTest {
+    private static final PronounSet XE = PronounSet.from("xe", "xem", "xyr", "xyrs", "xemself");
+
+    private final PronounParser parser = new PronounParser(PronounSet.builtins);
+
+    @Test
+    void parsesBuiltins() {
+        assertEquals(List.of(HE), parser.parse("he/him"));
+        assertEquals(List.of(SHE), parser.parse("She/Her"));
+        assertEquals(List.of(THEY), parser.parse("they/them/their/theirs/themselves:p"));
+        assertEquals(List.of(ANY), parser.parse("any"));
+        assertEquals(List.of(ASK), parser.parse("Ask"));
+    }
+
+    @Test
+    void parsesSeveralSetsInOrderWithoutDuplicates() {
+        assertEquals(List.of(HE, SHE), parser.parse(" he/him ; she/her;he/him "));
+    }
+
+    @Test
+    void parsesShorthand() {
+        assertEquals(List.of(HE), parser.parse("he"));
+        assertEquals(List.of(HE, SHE), parser.parse("he/she"));
+        assertEquals(List.of(SHE, THEY), parser.parse("She/They"));
+    }
+
+    @Test
+    void canonicalizesFullFormsToPredefinedSets() {
+        assertSame(HE, parser.parse("he/him/his/his/himself").get(0));
+        assertSame(THEY, parser.parse("They/Them/Their/Theirs/Themselves:p").get(0));
+    }
+
+    @Test
+    void parsesCustomSets() {
+        final var parsed = parser.parse("xe/xem/xyr/xyrs/xemself");
+        assertEquals(List.of(XE), parsed);
+        assertFalse(parsed.get(0).plural());
+        assertTrue(parser.parse("xe/xem/xyr/xyrs/xemself:p").get(0).plural());
+    }
+
+    @Test
+    void internsCustomSets() {
+        // Every player with the same custom set shares one instance
+        final var first = parser.parse("xe/xem/xyr/xyrs/xemself").get(0);
+        assertSame(first, parser.parse("he/him;xe/xem/xyr/xyrs/xemself").get(1));
+        assertSame(first, new PronounParser(PronounSet.builtins).parse("xe/xem/xyr/xyrs/xemself").get(0));
+    }
+
+    @Test
+    void ignoresInvalidParts() {
+        assertEquals(List.of(), parser.parse(""));
+        assertEquals(List.of(), parser.parse("  ;  ; "));
+        assertEquals(List.of(), parser.parse("foo/bar"));
+        assertEquals(List.of(), parser.parse("a/b/c/d/INVALID"));
+        assertEquals(List.of(), parser.parse("a/b/c/d/:p"));
+        assertEquals(List.of(HE), parser.parse("foo/bar;he/him"));
+    }
+
+    @Test
+    void parsesCharSequencesLikeStrings() {
+        assertEquals(parser.parse("he/him;xe/xem/xyr/xyrs/xemself"), parser.parse(new StringBuilder("he/him;xe/xem/xyr/xyrs/xemself")));
+    }
+
+    @Test
+    void cachesResults() {
+        final var cached = new PronounParser(PronounSet.builtins, 16);
+        final var first = cached.parse("she/her;they/them");
+        assertSame(first, cached.parse("she/her;they/them"));
+        assertEquals(1, cached.cacheHits());
+        assertEquals(1, cached.cacheMisses());
+    }
+
+    @Test
+    void parsesPredefinedSetsByFormAndName() {
+        final var catalog = new PronounParser(new FixedSupplier(XE, HE), 0, Map.of("neo", XE, "he", XE));
+        assertEquals(List.of(XE), catalog.parse("xe/xem"));
+        assertEquals(List.of(XE), catalog.parse("Neo"));
+        // Names never replace a set's own forms
+        assertEquals(List.of(HE), catalog.parse("he"));
+    }
+}
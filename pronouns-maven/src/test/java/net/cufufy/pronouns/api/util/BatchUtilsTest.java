@@ -0,0 +1,44 @@
+package net.cufufy.pronouns.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchUtilsTest {
+    @Test
+    void mapsEachDistinctInputOnce() {
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final var result = BatchUtils.mapDistinct(List.of("a", "bb", "a", "ccc", "bb"), input -> {
+            calls.computeIfAbsent(input, key -> new AtomicInteger()).incrementAndGet();
+            return input.length();
+        });
+        assertEquals(Map.of("a", 1, "bb", 2, "ccc", 3), result);
+        calls.forEach((input, count) -> assertEquals(1, count.get(), () -> input));
+    }
+
+    @Test
+    void mapsLargeBatchesInParallel() {
+        // Well past the threshold, so the work is split across the pool
+        final List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) inputs.add(Integer.toString(i % 5_000));
+        final var calls = new AtomicInteger();
+        final var result = BatchUtils.mapDistinct(inputs, input -> {
+            calls.incrementAndGet();
+            return Integer.parseInt(input);
+        });
+        assertEquals(5_000, result.size());
+        assertEquals(5_000, calls.get());
+        for (int i = 0; i < 5_000; i++) assertEquals(Integer.valueOf(i), result.get(Integer.toString(i)));
+    }
+
+    @Test
+    void mapsNothing() {
+        assertTrue(BatchUtils.mapDistinct(List.of(), String::length).isEmpty());
+    }
+}
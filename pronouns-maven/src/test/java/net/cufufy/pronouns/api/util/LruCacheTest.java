@@ -0,0 +1,60 @@
+package net.cufufy.pronouns.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        // Three entries make two segments of two, and even keys all fall in the first
+        final var cache = new LruCache<Integer, String>(3);
+        cache.put(0, "a");
+        cache.put(2, "b");
+        assertEquals("a", cache.get(0));
+        cache.put(4, "c");
+        assertEquals("a", cache.get(0));
+        assertNull(cache.get(2));
+        assertEquals("c", cache.get(4));
+    }
+
+    @Test
+    void neverHoldsMoreThanItsCapacityPerSegment() {
+        final var cache = new LruCache<Integer, Integer>(64);
+        for (int i = 0; i < 10_000; i++) cache.put(i, i);
+        assertTrue(cache.size() <= 64);
+        assertEquals(64, cache.capacity());
+    }
+
+    @Test
+    void computesMissingValuesOnce() {
+        final var cache = new LruCache<String, Integer>(16);
+        final var loads = new AtomicInteger();
+        final Function<String, Integer> loader = key -> {
+            loads.incrementAndGet();
+            return key.length();
+        };
+        assertEquals(Integer.valueOf(3), cache.computeIfAbsent("abc", loader));
+        assertEquals(Integer.valueOf(3), cache.computeIfAbsent("abc", loader));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void clears() {
+        final var cache = new LruCache<String, String>(16);
+        cache.put("a", "b");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void rejectsNonPositiveCapacities() {
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, String>(0));
+    }
+}
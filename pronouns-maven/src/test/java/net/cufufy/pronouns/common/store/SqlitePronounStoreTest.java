@@ -0,0 +1,94 @@
+package net.cufufy.pronouns.common.store;
+
+import net.cufufy.pronouns.api.PronounCodec;
+import net.cufufy.pronouns.api.PronounStore;
+import net.cufufy.pronouns.api.set.PronounSet;
+import net.cufufy.pronouns.common.platform.config.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static net.cufufy.pronouns.api.set.PronounSet.Builtins.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlitePronounStoreTest {
+    private static final PronounSet XE = PronounSet.from("xe", "xem", "xyr", "xyrs", "xemself");
+    private static final UUID ALEX = UUID.randomUUID();
+    private static final UUID SAM = UUID.randomUUID();
+
+    @TempDir
+    Path dir;
+
+    private SqlitePronounStore open(Config.StorageFormat format) {
+        return new SqlitePronounStore(dir.resolve("pronouns-store.db"), new PronounSerializer(() -> PronounCodec.BUILTINS, format), NOPLogger.NOP_LOGGER);
+    }
+
+    @Test
+    void setsAndRemovesPronouns() {
+        try (final var store = open(Config.StorageFormat.TEXT)) {
+            assertEquals(PronounStore.UNSET_LIST, store.sets(ALEX));
+            store.set(ALEX, List.of(SHE, XE));
+            assertEquals(List.of(SHE, XE), store.sets(ALEX));
+            store.set(ALEX, List.of());
+            assertEquals(PronounStore.UNSET_LIST, store.sets(ALEX));
+        }
+    }
+
+    @Test
+    void addsAndRemovesSets() {
+        try (final var store = open(Config.StorageFormat.TEXT)) {
+            store.addPronouns(ALEX, List.of(HE));
+            store.addPronouns(ALEX, List.of(THEY, HE));
+            assertEquals(List.of(HE, THEY), store.sets(ALEX));
+            store.removePronouns(ALEX, List.of(HE));
+            assertEquals(List.of(THEY), store.sets(ALEX));
+        }
+    }
+
+    @Test
+    void setAllKeepsExistingPronouns() {
+        try (final var store = open(Config.StorageFormat.TEXT)) {
+            store.set(ALEX, List.of(HE));
+            store.setAll(Map.of(ALEX, List.of(SHE), SAM, List.of(XE)));
+            assertEquals(List.of(HE), store.sets(ALEX));
+            assertEquals(List.of(XE), store.sets(SAM));
+        }
+    }
+
+    @Test
+    void dumpsEveryPlayer() {
+        try (final var store = open(Config.StorageFormat.BINARY)) {
+            store.set(ALEX, List.of(HE, XE));
+            store.set(SAM, List.of(ANY));
+            assertEquals(Map.of(ALEX, List.of(HE, XE), SAM, List.of(ANY)), store.dump());
+        }
+    }
+
+    @Test
+    void keepsPronounsAcrossRestarts() {
+        try (final var store = open(Config.StorageFormat.BINARY)) {
+            store.set(ALEX, List.of(XE, THEY));
+        }
+        try (final var store = open(Config.StorageFormat.TEXT)) {
+            assertEquals(List.of(XE, THEY), store.sets(ALEX));
+        }
+    }
+
+    @Test
+    void updatesCachedPlayers() {
+        try (final var store = open(Config.StorageFormat.TEXT)) {
+            store.set(ALEX, List.of(HE));
+            store.onPlayerJoin(ALEX);
+            assertEquals(List.of(HE), store.sets(ALEX));
+            store.set(ALEX, List.of(SHE));
+            assertEquals(List.of(SHE), store.sets(ALEX));
+            store.onPlayerLeave(ALEX);
+            assertEquals(List.of(SHE), store.sets(ALEX));
+        }
+    }
+}